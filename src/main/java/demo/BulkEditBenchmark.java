@@ -0,0 +1,129 @@
+package demo;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import engine.world.AbstractBlock;
+import engine.world.BlockChangeFeed;
+import engine.world.Chunk;
+import engine.world.World;
+import engine.world.WorldEdit;
+import engine.world.block.BlockState;
+import engine.world.block.BlockType;
+
+/**
+ * Blows spherical holes into generated terrain, once block by block through
+ * {@link World#setBlock} and once through {@link World#edit()}, and compares
+ * the time taken and how many chunk rebuilds each would cause, draining the
+ * change feed once per explosion like one renderer tick. Both worlds must
+ * end up with the same blocks.
+ */
+public class BulkEditBenchmark {
+    public static void main(String[] args) {
+        DemoArgs opts = new DemoArgs(args);
+        int explosions = opts.getInt("explosions", 200);
+        int blast = opts.getInt("blast", 6);
+        int radius = opts.getInt("radius", 3);
+        long seed = opts.getLong("seed", 7L);
+
+        System.out.println(String.format("explosions=%d blast radius=%d area=%dx%d chunks",
+            explosions, blast, 2 * radius + 1, 2 * radius + 1));
+
+        // One throwaway round each so both paths are compiled before timing.
+        explode(TempWorld.loadSquare(seed, radius), false, explosions, blast, radius, seed, new int[1]);
+        explode(TempWorld.loadSquare(seed, radius), true, explosions, blast, radius, seed, new int[1]);
+
+        World perBlock = TempWorld.loadSquare(seed, radius);
+        World batched = TempWorld.loadSquare(seed, radius);
+        int[] perBlockRebuilds = new int[1], batchedRebuilds = new int[1];
+        long perBlockNanos = explode(perBlock, false, explosions, blast, radius, seed, perBlockRebuilds);
+        long batchedNanos = explode(batched, true, explosions, blast, radius, seed, batchedRebuilds);
+
+        System.out.println(String.format("per block: %7.2f ms, %6d chunk rebuild requests",
+            perBlockNanos / 1e6, perBlockRebuilds[0]));
+        System.out.println(String.format("batched:   %7.2f ms, %6d chunk rebuild requests",
+            batchedNanos / 1e6, batchedRebuilds[0]));
+
+        int differing = 0;
+        for (int cz = -radius; cz <= radius; cz++) {
+            for (int cx = -radius; cx <= radius; cx++) {
+                if (!Arrays.equals(perBlock.getChunk(cx, cz).toStateArray(), batched.getChunk(cx, cz).toStateArray())) differing++;
+            }
+        }
+        System.out.println("chunks differing between worlds: " + differing);
+        if (differing > 0) System.exit(1);
+    }
+
+    /** Returns the time spent editing; rebuild requests are added to {@code rebuilds[0]}. */
+    private static long explode(World world, boolean batched, int explosions, int blast, int radius, long seed,
+                                int[] rebuilds) {
+        int air = BlockState.make(BlockType.AIR.getId());
+        BlockChangeFeed.Subscription feed = world.getChangeFeed().subscribe();
+        Random random = new Random(seed);
+        int span = (2 * radius + 1) * Chunk.SIZE - 2 * blast;
+        int origin = -radius * Chunk.SIZE + blast;
+        long nanos = 0;
+        for (int e = 0; e < explosions; e++) {
+            int ex = origin + random.nextInt(span);
+            int ez = origin + random.nextInt(span);
+            int ey = 60 + random.nextInt(60);
+
+            long t0 = System.nanoTime();
+            WorldEdit edit = batched ? world.edit() : null;
+            for (int y = -blast; y <= blast; y++) {
+                for (int z = -blast; z <= blast; z++) {
+                    for (int x = -blast; x <= blast; x++) {
+                        if (x * x + y * y + z * z > blast * blast) continue;
+                        if (batched) edit.setState(ex + x, ey + y, ez + z, air);
+                        else world.setBlock(ex + x, ey + y, ez + z, new AbstractBlock(air));
+                    }
+                }
+            }
+            if (batched) edit.commit();
+            nanos += System.nanoTime() - t0;
+            rebuilds[0] += rebuilds(feed);
+        }
+        return nanos;
+    }
+
+    /**
+     * Drains one tick's worth of changes and counts the chunk rebuilds they
+     * cause, the way the renderer collects them: each distinct chunk once,
+     * plus the neighbours whose faces touch a changed block.
+     */
+    private static int rebuilds(BlockChangeFeed.Subscription feed) {
+        Set<Long> chunks = new HashSet<>();
+        feed.drain(new BlockChangeFeed.Sink() {
+            @Override
+            public void blockChanged(int x, int y, int z, int oldState, int newState) {
+                int lx = Math.floorMod(x, Chunk.SIZE), lz = Math.floorMod(z, Chunk.SIZE);
+                int borders = 0;
+                if (lx == 0)              borders |= BlockChangeFeed.BORDER_WEST;
+                if (lx == Chunk.SIZE - 1) borders |= BlockChangeFeed.BORDER_EAST;
+                if (lz == 0)              borders |= BlockChangeFeed.BORDER_NORTH;
+                if (lz == Chunk.SIZE - 1) borders |= BlockChangeFeed.BORDER_SOUTH;
+                markStale(chunks, Math.floorDiv(x, Chunk.SIZE), Math.floorDiv(z, Chunk.SIZE), borders);
+            }
+
+            @Override
+            public void sectionChanged(int sectionX, int sectionY, int sectionZ, int borders) {
+                markStale(chunks, sectionX, sectionZ, borders);
+            }
+        });
+        return chunks.size();
+    }
+
+    private static void markStale(Set<Long> chunks, int chunkX, int chunkZ, int borders) {
+        int west = (borders & BlockChangeFeed.BORDER_WEST) != 0 ? -1 : 0;
+        int east = (borders & BlockChangeFeed.BORDER_EAST) != 0 ? 1 : 0;
+        int north = (borders & BlockChangeFeed.BORDER_NORTH) != 0 ? -1 : 0;
+        int south = (borders & BlockChangeFeed.BORDER_SOUTH) != 0 ? 1 : 0;
+        for (int dz = north; dz <= south; dz++) {
+            for (int dx = west; dx <= east; dx++) {
+                chunks.add(((long) (chunkX + dx) << 32) | ((chunkZ + dz) & 0xFFFFFFFFL));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package demo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import engine.world.Long2ObjectMap;
+
+/**
+ * Get-heavy comparison of {@link Long2ObjectMap} against
+ * {@code ConcurrentHashMap<Long, ?>} using packed chunk keys around the
+ * origin, the way the world, renderer and light engine look chunks up.
+ */
+public class ChunkMapBenchmark {
+    private interface Lookup {
+        Object get(long key);
+        void put(long key, Object value);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        DemoArgs opts = new DemoArgs(args);
+        int threads = opts.getInt("threads", Math.max(1, Runtime.getRuntime().availableProcessors()));
+        int radius = opts.getInt("radius", 16);
+        int rounds = opts.getInt("rounds", 5);
+        long millis = opts.getLong("millis", 1000);
+
+        // Probe a square one ring wider than the loaded one so a share of lookups miss,
+        // like neighbour lookups at the edge of the render distance do.
+        int side = 2 * (radius + 1) + 1;
+        long[] probes = new long[side * side];
+        int n = 0;
+        for (int cz = -radius - 1; cz <= radius + 1; cz++) {
+            for (int cx = -radius - 1; cx <= radius + 1; cx++) {
+                probes[n++] = ((long) cx << 32) | (cz & 0xffffffffL);
+            }
+        }
+
+        ConcurrentHashMap<Long, Object> chm = new ConcurrentHashMap<>();
+        Long2ObjectMap<Object> prim = new Long2ObjectMap<>();
+        Lookup chmLookup = new Lookup() {
+            public Object get(long key) { return chm.get(key); }
+            public void put(long key, Object value) { chm.put(key, value); }
+        };
+        Lookup primLookup = new Lookup() {
+            public Object get(long key) { return prim.get(key); }
+            public void put(long key, Object value) { prim.put(key, value); }
+        };
+        for (int cz = -radius; cz <= radius; cz++) {
+            for (int cx = -radius; cx <= radius; cx++) {
+                long key = ((long) cx << 32) | (cz & 0xffffffffL);
+                Object value = new Object();
+                chmLookup.put(key, value);
+                primLookup.put(key, value);
+            }
+        }
+
+        System.out.println(String.format("threads=%d loaded=%d probes=%d", threads, prim.size(), probes.length));
+        for (int r = 0; r < rounds; r++) {
+            double a = run(chmLookup, probes, threads, millis);
+            double b = run(primLookup, probes, threads, millis);
+            System.out.println(String.format(
+                "round %d: ConcurrentHashMap %.1f Mops/s, Long2ObjectMap %.1f Mops/s (%.2fx)",
+                r + 1, a / 1e6, b / 1e6, b / a));
+        }
+    }
+
+    private static double run(Lookup map, long[] probes, int threads, long millis) throws InterruptedException {
+        AtomicLong total = new AtomicLong();
+        AtomicLong sink = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long deadline = System.nanoTime() + millis * 1_000_000L;
+
+        for (int t = 0; t < threads; t++) {
+            final int seed = t * 7919;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long ops = 0, hits = 0;
+                int i = seed % probes.length;
+                while (System.nanoTime() < deadline) {
+                    for (int k = 0; k < 4096; k++) {
+                        if (map.get(probes[i]) != null) hits++;
+                        i += 31;
+                        if (i >= probes.length) i -= probes.length;
+                    }
+                    ops += 4096;
+                }
+                total.addAndGet(ops);
+                sink.addAndGet(hits);
+            });
+            workers[t].start();
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        if (sink.get() < 0) System.out.println(sink.get());
+        return total.get() / seconds;
+    }
+}
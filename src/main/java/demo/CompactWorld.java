@@ -0,0 +1,44 @@
+package demo;
+
+import java.io.File;
+import java.io.IOException;
+
+import engine.world.saving.SaveManager;
+
+public class CompactWorld {
+    public static void main(String[] args) {
+        String dir = "./world";
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--world") && i + 1 < args.length) {
+                dir = args[++i];
+            }
+        }
+
+        File worldDir = new File(dir);
+        SaveManager saveManager = new SaveManager(worldDir);
+        File worldFile = saveManager.getWorldFile();
+        if (!worldFile.isFile()) {
+            System.err.println("No world file at " + worldFile.getPath());
+            System.exit(1);
+        }
+
+        long before = worldFile.length();
+        long start = System.nanoTime();
+        try {
+            saveManager.compact();
+        } catch (IOException e) {
+            System.err.println("Compaction failed: " + e.getLocalizedMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        long after = worldFile.length();
+
+        System.out.println(String.format(
+            "Compacted %s: %d -> %d bytes, reclaimed %d bytes (%.1f%%) in %d ms",
+            worldFile.getPath(), before, after, before - after,
+            before > 0 ? 100.0 * (before - after) / before : 0.0,
+            elapsedMs
+        ));
+    }
+}
@@ -0,0 +1,44 @@
+package demo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code --key value} command line options for the programs in this package.
+ * A key without a value reads as {@code "true"}; anything not starting with
+ * {@code --} is ignored, and unknown keys are simply never asked for.
+ */
+final class DemoArgs {
+    private final Map<String, String> values = new HashMap<>();
+
+    DemoArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) continue;
+            String key = args[i].substring(2);
+            String value = "true";
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                value = args[++i];
+            }
+            values.put(key, value);
+        }
+    }
+
+    int getInt(String key, int fallback) {
+        String value = values.get(key);
+        return value != null ? Integer.parseInt(value) : fallback;
+    }
+
+    long getLong(String key, long fallback) {
+        String value = values.get(key);
+        return value != null ? Long.parseLong(value) : fallback;
+    }
+
+    float getFloat(String key, float fallback) {
+        String value = values.get(key);
+        return value != null ? Float.parseFloat(value) : fallback;
+    }
+
+    String getString(String key, String fallback) {
+        return values.getOrDefault(key, fallback);
+    }
+}
@@ -0,0 +1,82 @@
+package demo;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import engine.physics.EntityPhysics;
+import engine.world.Chunk;
+import engine.world.World;
+
+/**
+ * Drops a crowd of entities onto generated terrain and times
+ * {@link EntityPhysics} ticks on one thread and on a pool, reporting entity
+ * updates per second. Both runs start from the same state and are compared at
+ * the end, since a parallel tick must not change the outcome.
+ */
+public class EntityPhysicsBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        DemoArgs opts = new DemoArgs(args);
+        int threads = opts.getInt("threads", Math.max(1, Runtime.getRuntime().availableProcessors()));
+        int entities = opts.getInt("entities", 10000);
+        int ticks = opts.getInt("ticks", 600);
+        int radius = opts.getInt("radius", 2);
+        long seed = opts.getLong("seed", 7L);
+
+        World world = TempWorld.loadSquare(seed, radius);
+
+        System.out.println(String.format("entities=%d ticks=%d area=%dx%d chunks threads=%d",
+            entities, ticks, 2 * radius + 1, 2 * radius + 1, threads));
+
+        EntityPhysics serial = spawn(world, 1, entities, seed, radius);
+        double serialRate = run(serial, ticks, null);
+        System.out.println(String.format("1 thread:   %.2f M entity-ticks/s", serialRate / 1e6));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "entity-physics");
+            t.setDaemon(true);
+            return t;
+        });
+        EntityPhysics parallel = spawn(world, threads, entities, seed, radius);
+        double parallelRate = run(parallel, ticks, pool);
+        pool.shutdown();
+        System.out.println(String.format("%d threads: %.2f M entity-ticks/s (%.2fx)",
+            threads, parallelRate / 1e6, parallelRate / serialRate));
+
+        int differing = 0, grounded = 0;
+        for (int id = 0; id < entities; id++) {
+            if (serial.getX(id) != parallel.getX(id) || serial.getY(id) != parallel.getY(id)
+                    || serial.getZ(id) != parallel.getZ(id)) differing++;
+            if (serial.isOnGround(id)) grounded++;
+        }
+        System.out.println(String.format("on ground: %d, differing between runs: %d", grounded, differing));
+        if (differing > 0) System.exit(1);
+    }
+
+    private static EntityPhysics spawn(World world, int parallelism, int entities, long seed, int radius) {
+        EntityPhysics physics = new EntityPhysics(world, parallelism);
+        Random random = new Random(seed);
+        int span = (2 * radius + 1) * Chunk.SIZE;
+        int origin = -radius * Chunk.SIZE;
+        for (int i = 0; i < entities; i++) {
+            float x = origin + 1 + random.nextFloat() * (span - 2);
+            float z = origin + 1 + random.nextFloat() * (span - 2);
+            float y = 150 + random.nextFloat() * 40;
+            boolean item = random.nextInt(4) == 0;
+            int id = item ? physics.add(x, y, z, 0.25f, 0.25f) : physics.add(x, y, z, 0.6f, 1.8f);
+            physics.setVelocity(id, random.nextFloat() * 4 - 2, 0f, random.nextFloat() * 4 - 2);
+        }
+        return physics;
+    }
+
+    private static double run(EntityPhysics physics, int ticks, ExecutorService pool) throws InterruptedException {
+        final float dt = 1f / 60f;
+        long t0 = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            if (pool == null) physics.tick(dt);
+            else physics.tick(dt, pool);
+        }
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        return (double) physics.size() * ticks / seconds;
+    }
+}
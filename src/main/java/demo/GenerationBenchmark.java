@@ -0,0 +1,59 @@
+package demo;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import engine.world.Chunk;
+import engine.world.NoisePrecision;
+import engine.world.World;
+
+/**
+ * Measures terrain generation throughput in chunks per second, overall and per
+ * worker thread. Each round generates a square of detached chunks twice: the
+ * cold pass runs the noise, the warm pass finds every heightmap in the
+ * world's cache and so mostly measures filling the block storage.
+ * {@code --precision float} runs the heightmap noise in single precision.
+ */
+public class GenerationBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        DemoArgs opts = new DemoArgs(args);
+        int threads = opts.getInt("threads", Math.max(1, Runtime.getRuntime().availableProcessors()));
+        int size = opts.getInt("size", 16);
+        int rounds = opts.getInt("rounds", 3);
+        long seed = opts.getLong("seed", 7L);
+        NoisePrecision precision = NoisePrecision.valueOf(opts.getString("precision", "double").toUpperCase());
+
+        System.out.println(String.format("threads=%d area=%dx%d seed=%d precision=%s", threads, size, size, seed, precision));
+        for (int r = 0; r < rounds; r++) {
+            World world = TempWorld.create(seed, precision);
+            double cold = run(world, size, threads);
+            double warm = run(world, size, threads);
+            System.out.println(String.format(
+                "round %d: cold %.1f chunks/s (%.1f per thread), warm %.1f chunks/s (%.1f per thread)",
+                r + 1, cold, cold / threads, warm, warm / threads));
+        }
+    }
+
+    private static double run(World world, int size, int threads) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger sink = new AtomicInteger();
+        int total = size * size;
+        int half = size / 2;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < total) {
+                    Chunk chunk = world.generateDetached(i % size - half, i / size - half);
+                    sink.addAndGet(chunk.getState(0, 0, 0));
+                }
+            }, "gen-bench-" + t);
+        }
+
+        long t0 = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        if (sink.get() == Integer.MIN_VALUE) System.out.println(sink.get());
+        return total / seconds;
+    }
+}
@@ -0,0 +1,100 @@
+package demo;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import engine.world.World;
+
+/**
+ * Generates the same square of chunks once on a single thread and once on
+ * several, each time in a fresh {@link World}, and compares a hash of every
+ * chunk's block states. The parallel pass visits chunks in a shuffled order so
+ * neighbours get generated by different threads than in the reference pass.
+ * Exits with status 1 if any chunk differs, so it can also gate a build.
+ */
+public class GenerationDeterminismCheck {
+    public static void main(String[] args) throws InterruptedException {
+        DemoArgs opts = new DemoArgs(args);
+        int threads = opts.getInt("threads", Math.max(2, Runtime.getRuntime().availableProcessors()));
+        int size = opts.getInt("size", 16);
+        int runs = opts.getInt("runs", 1);
+        long seed = opts.getLong("seed", 7L);
+
+        System.out.println(String.format("area=%dx%d seed=%d threads=1 vs %d", size, size, seed, threads));
+        long[] reference = new long[size * size];
+        double rate = generate(seed, size, 1, identity(size * size), reference);
+        System.out.println(String.format("1 thread: %.1f chunks/s", rate));
+
+        int mismatches = 0;
+        for (int run = 0; run < runs; run++) {
+            long[] hashes = new long[size * size];
+            int[] order = identity(size * size);
+            shuffle(order, new Random(seed * 31 + run));
+            rate = generate(seed, size, threads, order, hashes);
+
+            int bad = 0;
+            for (int i = 0; i < hashes.length; i++) {
+                if (hashes[i] == reference[i]) continue;
+                if (bad < 10) {
+                    System.out.println(String.format("  mismatch at chunk %d,%d: %016x != %016x",
+                        i % size - size / 2, i / size - size / 2, hashes[i], reference[i]));
+                }
+                bad++;
+            }
+            mismatches += bad;
+            System.out.println(String.format("%d threads, run %d: %.1f chunks/s, %d mismatched chunks",
+                threads, run + 1, rate, bad));
+        }
+
+        if (mismatches > 0) {
+            System.out.println("FAILED: generation depends on thread scheduling");
+            System.exit(1);
+        }
+        System.out.println("OK: all chunks identical");
+    }
+
+    private static double generate(long seed, int size, int threads, int[] order, long[] out)
+            throws InterruptedException {
+        World world = TempWorld.create(seed);
+        AtomicInteger next = new AtomicInteger();
+        int half = size / 2;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                int n;
+                while ((n = next.getAndIncrement()) < order.length) {
+                    int i = order[n];
+                    out[i] = hash(world.generateDetached(i % size - half, i / size - half).toStateArray());
+                }
+            }, "gen-check-" + t);
+        }
+
+        long t0 = System.nanoTime();
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        return order.length / ((System.nanoTime() - t0) / 1e9);
+    }
+
+    // 64-bit FNV-1a over the states, so a collision hiding a real difference is unlikely.
+    private static long hash(int[] states) {
+        long h = 0xcbf29ce484222325L;
+        for (int s : states) {
+            h ^= s;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static int[] identity(int n) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) a[i] = i;
+        return a;
+    }
+
+    private static void shuffle(int[] a, Random random) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = a[i]; a[i] = a[j]; a[j] = t;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package demo;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import engine.world.Chunk;
+import engine.world.RayHit;
+import engine.world.VoxelRaycaster;
+import engine.world.World;
+
+/**
+ * Casts batches of random rays through generated terrain with
+ * {@link VoxelRaycaster}, on one thread and on a pool, and reports rays per
+ * second. Both runs cast the same rays and must report the same hits.
+ */
+public class RaycastBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        DemoArgs opts = new DemoArgs(args);
+        int threads = opts.getInt("threads", Math.max(1, Runtime.getRuntime().availableProcessors()));
+        int rays = opts.getInt("rays", 100000);
+        int rounds = opts.getInt("rounds", 10);
+        int radius = opts.getInt("radius", 3);
+        float distance = opts.getFloat("distance", 64f);
+        long seed = opts.getLong("seed", 7L);
+
+        World world = TempWorld.loadSquare(seed, radius);
+
+        Random random = new Random(seed);
+        float[] origins = new float[rays * 3];
+        float[] directions = new float[rays * 3];
+        int span = (2 * radius + 1) * Chunk.SIZE;
+        int origin = -radius * Chunk.SIZE;
+        for (int i = 0; i < rays; i++) {
+            origins[i * 3] = origin + random.nextFloat() * span;
+            origins[i * 3 + 1] = random.nextFloat() * Chunk.HEIGHT;
+            origins[i * 3 + 2] = origin + random.nextFloat() * span;
+            float dx = (float) random.nextGaussian(), dy = (float) random.nextGaussian(), dz = (float) random.nextGaussian();
+            float len = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            directions[i * 3] = dx / len;
+            directions[i * 3 + 1] = dy / len;
+            directions[i * 3 + 2] = dz / len;
+        }
+
+        System.out.println(String.format("rays=%d rounds=%d distance=%.0f area=%dx%d chunks threads=%d",
+            rays, rounds, distance, 2 * radius + 1, 2 * radius + 1, threads));
+
+        VoxelRaycaster raycaster = new VoxelRaycaster(world);
+        RayHit[] serial = hits(rays);
+        RayHit[] parallel = hits(rays);
+
+        long t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            raycaster.castAll(origins, directions, rays, distance, serial);
+        }
+        double serialRate = (double) rays * rounds / ((System.nanoTime() - t0) / 1e9);
+        System.out.println(String.format("1 thread:   %.2f M rays/s", serialRate / 1e6));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "raycast");
+            t.setDaemon(true);
+            return t;
+        });
+        t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            raycaster.castAll(origins, directions, rays, distance, parallel, pool, threads);
+        }
+        double parallelRate = (double) rays * rounds / ((System.nanoTime() - t0) / 1e9);
+        pool.shutdown();
+        System.out.println(String.format("%d threads: %.2f M rays/s (%.2fx)",
+            threads, parallelRate / 1e6, parallelRate / serialRate));
+
+        int hit = 0, differing = 0;
+        for (int i = 0; i < rays; i++) {
+            RayHit a = serial[i], b = parallel[i];
+            if (a.hit) hit++;
+            if (a.hit != b.hit || a.x != b.x || a.y != b.y || a.z != b.z || a.distance != b.distance) differing++;
+        }
+        System.out.println(String.format("hits: %d, differing between runs: %d", hit, differing));
+        if (differing > 0) System.exit(1);
+    }
+
+    private static RayHit[] hits(int count) {
+        RayHit[] hits = new RayHit[count];
+        for (int i = 0; i < count; i++) hits[i] = new RayHit();
+        return hits;
+    }
+}
@@ -0,0 +1,71 @@
+package demo;
+
+import engine.physics.PhysicsEngine;
+import engine.rendering.Camera;
+import engine.world.AbstractBlock;
+import engine.world.World;
+import engine.world.block.BlockState;
+import engine.world.block.BlockType;
+
+/**
+ * Headless check of the player step-up against slabs, stairs and full
+ * blocks. Each case builds a small scene on a stone floor high above the
+ * terrain, walks the player into it along +x and compares the rise.
+ * Exits with status 1 if any case fails.
+ */
+public class StepUpCheck {
+    private static final int FLOOR_Y = 200;
+    private static final int X = 8, Z = 8;
+
+    public static void main(String[] args) {
+        World world = TempWorld.create(7L);
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                world.setBlock(x, FLOOR_Y - 1, z, new AbstractBlock(BlockType.STONE));
+            }
+        }
+
+        int slab = BlockType.SLAB.getId(), stair = BlockType.STAIR.getId();
+        int failures = 0;
+        failures += check(world, "bottom slab", 0.5f, BlockState.asSlab(slab, BlockState.SLAB_KIND_BOTTOM), 0);
+        failures += check(world, "top slab", 0f, BlockState.asSlab(slab, BlockState.SLAB_KIND_TOP), 0);
+        failures += check(world, "double slab", 0f, BlockState.asSlab(slab, BlockState.SLAB_KIND_DOUBLE), 0);
+        failures += check(world, "stairs, low side first", 0.5f,
+            BlockState.asStairs(stair, BlockState.FACING_WEST, false), 0);
+        failures += check(world, "stairs, high side first", 0f,
+            BlockState.asStairs(stair, BlockState.FACING_EAST, false), 0);
+        failures += check(world, "upside-down stairs", 0f,
+            BlockState.asStairs(stair, BlockState.FACING_WEST, true), 0);
+        failures += check(world, "full block", 0f, BlockState.make(BlockType.STONE.getId()), 0);
+        failures += check(world, "bottom slab, no head room", 0f,
+            BlockState.asSlab(slab, BlockState.SLAB_KIND_BOTTOM), BlockState.make(BlockType.STONE.getId()));
+
+        if (failures > 0) {
+            System.out.println("FAILED: " + failures + " case(s)");
+            System.exit(1);
+        }
+        System.out.println("OK");
+        System.exit(0);
+    }
+
+    /** Places {@code obstacle} in front of the player and {@code ceiling} (if not air) just above their head. */
+    private static int check(World world, String name, float expected, int obstacle, int ceiling) {
+        for (int y = FLOOR_Y; y < FLOOR_Y + 4; y++) {
+            world.setBlock(X - 1, y, Z, new AbstractBlock(BlockType.AIR));
+            world.setBlock(X, y, Z, new AbstractBlock(BlockType.AIR));
+        }
+        world.setBlock(X, FLOOR_Y, Z, new AbstractBlock(obstacle));
+        world.setBlock(X - 1, FLOOR_Y + 2, Z, new AbstractBlock(ceiling));
+
+        Camera camera = new Camera(1, 1, FLOOR_Y, 2, world);
+        camera.getPosition().set(X - 0.6f, FLOOR_Y, Z + 0.5f);
+        PhysicsEngine physics = new PhysicsEngine(world, camera);
+        physics.tick(1f / 60f, false, false);
+
+        physics.resolveHorizontalX(0.5f, 1.8f);
+        float rise = physics.consumeStepRise();
+        boolean ok = Math.abs(rise - expected) < 1e-3f && physics.getStepUpCount() == (expected > 0f ? 1 : 0);
+        System.out.println(String.format("%-4s %-28s rise=%.4f expected=%.4f", ok ? "ok" : "FAIL", name, rise, expected));
+        return ok ? 0 : 1;
+    }
+}
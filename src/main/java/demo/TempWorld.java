@@ -0,0 +1,53 @@
+package demo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+import engine.world.NoisePrecision;
+import engine.world.World;
+
+/**
+ * Worlds for the checks and benchmarks in this package. Each one saves into
+ * its own temporary directory, removed again when the JVM exits, so a run
+ * neither reads chunks left over from an earlier run nor touches ./world.
+ */
+final class TempWorld {
+    private TempWorld() {}
+
+    static World create(long seed) {
+        return create(seed, NoisePrecision.DOUBLE);
+    }
+
+    static World create(long seed, NoisePrecision precision) {
+        File dir;
+        try {
+            dir = Files.createTempDirectory("world").toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(dir)));
+        return new World(seed, dir, precision);
+    }
+
+    /** A temporary world with every chunk within the square radius of the origin loaded. */
+    static World loadSquare(long seed, int radius) {
+        World world = create(seed);
+        for (int cz = -radius; cz <= radius; cz++) {
+            for (int cx = -radius; cx <= radius; cx++) {
+                world.getChunk(cx, cz);
+            }
+        }
+        return world;
+    }
+
+    /** Deletes the file, or the directory and everything in it. */
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) delete(child);
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,159 @@
+package engine;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+import org.joml.Vector3f;
+
+import engine.input.InputHandler;
+import engine.physics.PhysicsEngine;
+import engine.rendering.Camera;
+import engine.world.World;
+
+/**
+ * Runs player movement, physics and world ticks at a fixed rate on their own
+ * thread, so a slow frame no longer stretches simulated time. After every tick
+ * the player position is published to one of two snapshot buffers; the render
+ * thread reads the newest one and places the camera between the previous and
+ * the current tick according to how much time has passed since.
+ * <p>
+ * Code on the render thread that edits the input state or moves the player,
+ * such as click handling, should hold {@link #lock()} so it never interleaves
+ * with movement and physics. World ticks run outside the lock, so chunk
+ * streaming never holds up the render thread.
+ */
+public final class SimulationThread {
+    public static final float TICK_RATE = 60f;
+    public static final float TICK_DT = 1f / TICK_RATE;
+    private static final long TICK_NANOS = (long) (1_000_000_000L / TICK_RATE);
+    // World ticks (chunk streaming) run at 20 Hz, every third simulation tick.
+    private static final int TICKS_PER_WORLD_TICK = 3;
+    // After a stall longer than this the backlog is dropped rather than replayed.
+    private static final long MAX_LAG_NANOS = 250_000_000L;
+
+    private static final class Snapshot {
+        float prevX, prevY, prevZ;
+        float x, y, z;
+        long nanos;
+    }
+
+    private final World world;
+    private final Camera camera;
+    private final PhysicsEngine physics;
+    private final InputHandler input;
+    private final Object lock = new Object();
+
+    private final Snapshot[] snapshots = { new Snapshot(), new Snapshot() };
+    private volatile int front = 0;
+    // Odd while a snapshot is being written; readers retry if it changed under them.
+    private volatile int publishCount = 0;
+
+    private volatile boolean running = false;
+    private Thread thread;
+    private long ticks = 0;
+
+    public SimulationThread(World world, Camera camera, PhysicsEngine physics, InputHandler input) {
+        this.world = world;
+        this.camera = camera;
+        this.physics = physics;
+        this.input = input;
+        Vector3f p = camera.getPosition();
+        for (Snapshot s : snapshots) {
+            s.prevX = s.x = p.x;
+            s.prevY = s.y = p.y;
+            s.prevZ = s.z = p.z;
+            s.nanos = System.nanoTime();
+        }
+    }
+
+    public Object lock() {
+        return lock;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread == null) return;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            if (now - next > MAX_LAG_NANOS) next = now;
+
+            try {
+                synchronized (lock) {
+                    input.applyMovement(TICK_DT);
+                    physics.tick(TICK_DT, input.isJumpPressed(), input.isCrouchPressed());
+                }
+                if (++ticks % TICKS_PER_WORLD_TICK == 0) {
+                    world.tick(camera, TICK_DT * TICKS_PER_WORLD_TICK);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            publish(System.nanoTime());
+            next += TICK_NANOS;
+        }
+    }
+
+    private void publish(long nanos) {
+        Snapshot cur = snapshots[front];
+        Snapshot back = snapshots[front ^ 1];
+        Vector3f p = camera.getPosition();
+
+        publishCount++;
+        // Keep the snapshot writes below from moving ahead of the odd count.
+        VarHandle.releaseFence();
+        back.prevX = cur.x; back.prevY = cur.y; back.prevZ = cur.z;
+        back.x = p.x; back.y = p.y; back.z = p.z;
+        back.nanos = nanos;
+        front ^= 1;
+        publishCount++;
+    }
+
+    /**
+     * Moves the camera's render position to where the player is between the
+     * last two ticks at this moment. Call once per frame before drawing.
+     */
+    public void interpolate(Camera target) {
+        float x, y, z;
+        while (true) {
+            int before = publishCount;
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            Snapshot s = snapshots[front];
+            float alpha = (System.nanoTime() - s.nanos) / (float) TICK_NANOS;
+            if (alpha > 1f) alpha = 1f;
+            if (alpha < 0f) alpha = 0f;
+            x = s.prevX + (s.x - s.prevX) * alpha;
+            y = s.prevY + (s.y - s.prevY) * alpha;
+            z = s.prevZ + (s.z - s.prevZ) * alpha;
+            // Keep the snapshot reads above from moving past the re-check.
+            VarHandle.acquireFence();
+            if (publishCount == before) break;
+        }
+        target.setRenderPosition(x, y, z);
+    }
+}
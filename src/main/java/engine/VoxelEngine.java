@@ -31,6 +31,7 @@ public class VoxelEngine {
 	private Camera camera;
 	private InputHandler input;
 	private PhysicsEngine physics;
+	private SimulationThread simulation;
 	private static LightEngine lightEngine;
 	private boolean running = true;
 	int vsync = 0;
@@ -76,27 +77,25 @@ public class VoxelEngine {
 		lightEngine = new LightEngine();
 		input = new InputHandler(window, camera, physics, this);
 		renderer = new Renderer(world, camera);
+		simulation = new SimulationThread(world, camera, physics, input);
 		UIManager.get().setWindow(window);
 	}
 
 	private void loop() {
-	    final float GAME_TICK_RATE = 60.0f;
-	    final float GAME_DT = 1.0f / GAME_TICK_RATE;
+	    // Render-side ticks (texture animation, lighting refresh, UI) stay on this thread;
+	    // movement, physics and world ticks run on the simulation thread.
+	    final float GAME_DT = SimulationThread.TICK_DT;
 	    final int   MAX_GAME_TICKS_PER_FRAME = 5;
 
-	    final float WORLD_TICK_RATE = 20.0f;
-	    final float WORLD_DT = 1.0f / WORLD_TICK_RATE;
-	    final int   MAX_WORLD_TICKS_PER_FRAME = 2;
-
 	    double lastTime = GLFW.glfwGetTime();
 	    float gameAccum  = 0f;
-	    float worldAccum = 0f;
-	    float renderAccum = 0f;
 
 	    int frames = 0;
 	    double lastFpsTime = lastTime;
 
+	    simulation.start();
 	    while (!GLFW.glfwWindowShouldClose(window) && running) {
+	    	simulation.interpolate(camera);
 	    	renderer.render(input);
 	        UIManager.get().render();
 	        
@@ -107,8 +106,6 @@ public class VoxelEngine {
 	        if (frameTime > 0.25f) frameTime = 0.25f;
 
 	        gameAccum  += frameTime;
-	        worldAccum += frameTime;
-	        renderAccum += frameTime;
 
 	        frames++;
 	        if (now - lastFpsTime >= 1.0) {
@@ -117,7 +114,7 @@ public class VoxelEngine {
 	                "Open-Voxel Engine - %s | FPS: %d | Pos: (%d, %d, %d) | Chunks: %s | Facing: %s",
 	                version, frames,
 	                (int) pos.x, (int) pos.y, (int) pos.z,
-	                world.getChunks().entrySet().size(),
+	                world.getChunks().size(),
 	                camera.getFacing()
 	            );
 	            GLFW.glfwSetWindowTitle(window, title);
@@ -125,25 +122,19 @@ public class VoxelEngine {
 	            lastFpsTime = now;
 	        }
 
-	        input.sampleInput();
+	        // Clicks edit blocks around the player, so keep them out of the middle of a physics step.
+	        synchronized (simulation.lock()) {
+	        	input.sampleInput();
+	        }
 
 	        int gameTicks = 0;
 	        while (gameAccum >= GAME_DT && gameTicks < MAX_GAME_TICKS_PER_FRAME) {
-	            input.applyMovement(GAME_DT);
-	            physics.tick(GAME_DT, input.isJumpPressed(), input.isCrouchPressed());
 	            renderer.tick(GAME_DT);
 	            UIManager.get().tick((long)(GAME_DT * 1000));
 
 	            gameAccum -= GAME_DT;
 	            gameTicks++;
 	        }
-
-	        int worldTicks = 0;
-	        while (worldAccum >= WORLD_DT && worldTicks < MAX_WORLD_TICKS_PER_FRAME) {
-	        	world.tick(camera, WORLD_DT); // can be slow, but capped
-	            worldAccum -= WORLD_DT;
-	            worldTicks++;
-	        }
 	        
 	        //renderer.rebuildLightingInView();
 
@@ -152,9 +143,11 @@ public class VoxelEngine {
 
 	        
 	    }
+	    simulation.stop();
 	}
 
 	public void cleanup() {
+		world.save();
 		renderer.cleanup();
 		GLFW.glfwDestroyWindow(window);
 		GLFW.glfwTerminate();
@@ -179,7 +172,6 @@ public class VoxelEngine {
 		    if (e.type == ClickEvent.ClickType.LEFT) {
 		        if (y >= 1) {
 		            chunk.setBlock(lx, y, lz, new AbstractBlock(BlockType.AIR));
-		            renderer.invalidateBlock(x, y, z);
 		        }
 		        return;
 		    }
@@ -226,7 +218,6 @@ public class VoxelEngine {
 		                            );
 		                            inHand.setState(merged);
 		                            hChunk.setBlock(hlx, h.y, hlz, inHand);
-		                            renderer.invalidateBlock(h.x, h.y, h.z);
 		                            return;
 		                        }
 		                    }
@@ -254,7 +245,6 @@ public class VoxelEngine {
 
 		        inHand.setState(outState);
 		        chunk.setBlock(lx, y, lz, inHand);
-		        renderer.invalidateBlock(x, y, z);
 		    }
 		});
 	}
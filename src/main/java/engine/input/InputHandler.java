@@ -4,7 +4,10 @@ import engine.rendering.Camera;
 import engine.ui.PauseMenu;
 import engine.ui.UIManager;
 import engine.world.AbstractBlock;
+import engine.world.BlockChangeFeed;
 import engine.world.Chunk;
+import engine.world.RayHit;
+import engine.world.VoxelRaycaster;
 import engine.world.World;
 import engine.world.block.BlockState;
 import engine.world.block.BlockType;
@@ -13,7 +16,6 @@ import engine.events.player.ClickEvent;
 import engine.events.player.ClickEvent.ClickType;
 import engine.gui.PlayerInventory;
 import engine.physics.PhysicsEngine;
-import engine.physics.PhysicsEngine.AABB;
 
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.opengl.GL30;
@@ -38,7 +40,9 @@ public class InputHandler {
     private static final float PLAYER_DEPTH = 0.6f;
     private static final float PLAYER_HEIGHT = 1.8f;
     private static final float EYE_HEIGHT = 1.62f;
-    private static final float RAY_EPS = 1e-4f;
+    // The hover pick is redone only once the view has moved or turned by more than these.
+    private static final float HOVER_MOVE_EPS = 1e-3f;
+    private static final float HOVER_TURN_EPS = 1e-2f;
 
     private boolean leftWasDown = false;
     private boolean middleWasDown = false;
@@ -47,10 +51,28 @@ public class InputHandler {
     private boolean eWasDown = false;
 
     private Hit hoverHit;
+    private boolean hoverStale = true;
+    private final BlockChangeFeed.Subscription blockChanges;
+    private final BlockChangeFeed.Sink hoverChangeSink = new BlockChangeFeed.Sink() {
+        @Override
+        public void blockChanged(int x, int y, int z, int oldState, int newState) {
+            onRegionChanged(x, y, z, x + 1, y + 1, z + 1);
+        }
+
+        @Override
+        public void sectionChanged(int sectionX, int sectionY, int sectionZ, int borders) {
+            int x = sectionX * Chunk.SIZE, y = sectionY * Chunk.SIZE, z = sectionZ * Chunk.SIZE;
+            onRegionChanged(x, y, z, x + Chunk.SIZE, y + Chunk.SIZE, z + Chunk.SIZE);
+        }
+    };
+    private float hoverX, hoverY, hoverZ, hoverYaw, hoverPitch;
+    private int hoverChunkEpoch;
     private VoxelEngine voxelEngine;
+    private final VoxelRaycaster raycaster;
+    private final RayHit pickHit = new RayHit();
 
     private boolean wPressed, sPressed, aPressed, dPressed;
-    private boolean sprintPressed, crouchPressed;
+    private boolean sprintPressed, crouchPressed, jumpPressed;
     public boolean paused = false;
 
     PauseMenu pauseMenu;
@@ -61,6 +83,8 @@ public class InputHandler {
         this.window = window;
         this.camera = camera;
         this.physics = physics;
+        this.raycaster = new VoxelRaycaster(camera.getWorld(), true);
+        this.blockChanges = camera.getWorld().getChangeFeed().subscribe();
         camera.setInput(this);
 
         GLFW.glfwSetInputMode(window, GLFW.GLFW_CURSOR, GLFW.GLFW_CURSOR_DISABLED);
@@ -147,7 +171,7 @@ public class InputHandler {
     public Hit getHoverHit() { return hoverHit; }
 
     public Hit pickBlockFromCamera() {
-        Vector3f eye = new Vector3f(camera.getPosition()).add(0f, EYE_HEIGHT, 0f);
+        Vector3f p = camera.getPosition();
 
         float yawRad   = (float) Math.toRadians(camera.getYaw());
         float pitchRad = (float) Math.toRadians(camera.getPitch());
@@ -156,183 +180,10 @@ public class InputHandler {
         float sinY = (float) Math.sin(yawRad);
         float cosY = (float) Math.cos(yawRad);
 
-        Vector3f dir = new Vector3f(sinY * cosP, -sinP, -cosY * cosP);
-        if (dir.lengthSquared() < 1e-6f) return null;
-
-        int vx = (int) Math.floor(eye.x);
-        int vy = (int) Math.floor(eye.y);
-        int vz = (int) Math.floor(eye.z);
-
-        int stepX = dir.x > 0 ? 1 : (dir.x < 0 ? -1 : 0);
-        int stepY = dir.y > 0 ? 1 : (dir.y < 0 ? -1 : 0);
-        int stepZ = dir.z > 0 ? 1 : (dir.z < 0 ? -1 : 0);
-
-        final float invDx = dir.x != 0 ? 1f / Math.abs(dir.x) : Float.POSITIVE_INFINITY;
-        final float invDy = dir.y != 0 ? 1f / Math.abs(dir.y) : Float.POSITIVE_INFINITY;
-        final float invDz = dir.z != 0 ? 1f / Math.abs(dir.z) : Float.POSITIVE_INFINITY;
-
-        float tMaxX, tMaxY, tMaxZ;
-        if (stepX > 0)      tMaxX = ((vx + 1) - eye.x) * invDx;
-        else if (stepX < 0) tMaxX = (eye.x - vx) * invDx;
-        else                tMaxX = Float.POSITIVE_INFINITY;
-
-        if (stepY > 0)      tMaxY = ((vy + 1) - eye.y) * invDy;
-        else if (stepY < 0) tMaxY = (eye.y - vy) * invDy;
-        else                tMaxY = Float.POSITIVE_INFINITY;
-
-        if (stepZ > 0)      tMaxZ = ((vz + 1) - eye.z) * invDz;
-        else if (stepZ < 0) tMaxZ = (eye.z - vz) * invDz;
-        else                tMaxZ = Float.POSITIVE_INFINITY;
-
-        float tDeltaX = stepX != 0 ? invDx : Float.POSITIVE_INFINITY;
-        float tDeltaY = stepY != 0 ? invDy : Float.POSITIVE_INFINITY;
-        float tDeltaZ = stepZ != 0 ? invDz : Float.POSITIVE_INFINITY;
-
-        if (tMaxX < Float.POSITIVE_INFINITY) tMaxX += RAY_EPS;
-        if (tMaxY < Float.POSITIVE_INFINITY) tMaxY += RAY_EPS;
-        if (tMaxZ < Float.POSITIVE_INFINITY) tMaxZ += RAY_EPS;
-
-        World w = camera.getWorld();
-
-        float bestT = Float.POSITIVE_INFINITY;
-        Hit bestHit = null;
-        float t = 0f;
-
-        while (t <= PICK_MAX_DIST) {
-            int nx = 0, ny = 0, nz = 0;
-
-            // Standard DDA step
-            if (tMaxX < tMaxY) {
-                if (tMaxX < tMaxZ) {
-                    vx += stepX;
-                    t = tMaxX;
-                    tMaxX += tDeltaX;
-                    nx = -stepX;
-                } else {
-                    vz += stepZ;
-                    t = tMaxZ;
-                    tMaxZ += tDeltaZ;
-                    nz = -stepZ;
-                }
-            } else {
-                if (tMaxY < tMaxZ) {
-                    vy += stepY;
-                    t = tMaxY;
-                    tMaxY += tDeltaY;
-                    ny = -stepY;
-                } else {
-                    vz += stepZ;
-                    t = tMaxZ;
-                    tMaxZ += tDeltaZ;
-                    nz = -stepZ;
-                }
-            }
-            if (t > PICK_MAX_DIST) break;
-
-            int state = getStateAt(w, vx, vy, vz);
-            if (BlockState.typeId(state) == BlockType.AIR.getId()) continue;
-
-            AbstractBlock block = w.getBlock(vx, vy, vz);
-            if (block == null) continue;
-
-            for (AABB localBox : block.getCollisionBoxes()) {
-                // convert local [0..1] box to world coordinates
-                float minX = vx + localBox.minX;
-                float minY = vy + localBox.minY;
-                float minZ = vz + localBox.minZ;
-                float maxX = vx + localBox.maxX;
-                float maxY = vy + localBox.maxY;
-                float maxZ = vz + localBox.maxZ;
-
-                int[] nOut = new int[3];
-                float tHit = rayIntersectAABB(eye, dir,
-                        minX, minY, minZ,
-                        maxX, maxY, maxZ,
-                        nOut);
-
-                if (tHit >= 0f && tHit <= PICK_MAX_DIST && tHit < bestT) {
-                    bestT = tHit;
-                    bestHit = new Hit(vx, vy, vz, nOut[0], nOut[1], nOut[2]);
-                }
-            }
+        if (!raycaster.cast(p.x, p.y + EYE_HEIGHT, p.z, sinY * cosP, -sinP, -cosY * cosP, PICK_MAX_DIST, pickHit)) {
+            return null;
         }
-
-        return bestHit;
-    }
-
-    
- // returns entry t or +INF if no hit; outNormal[0..2] = face normal
-    private float rayIntersectAABB(Vector3f origin, Vector3f dir,
-                                   float minX, float minY, float minZ,
-                                   float maxX, float maxY, float maxZ,
-                                   int[] outNormal) {
-        float tmin = 0f;
-        float tmax = PICK_MAX_DIST;
-
-        int hitAxis = -1;
-        int hitSign = 0;
-
-        // X
-        if (Math.abs(dir.x) < 1e-6f) {
-            if (origin.x < minX || origin.x > maxX) return Float.POSITIVE_INFINITY;
-        } else {
-            float inv = 1f / dir.x;
-            float t1 = (minX - origin.x) * inv;
-            float t2 = (maxX - origin.x) * inv;
-            if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
-            if (t1 > tmin) {
-                tmin = t1;
-                hitAxis = 0;
-                hitSign = dir.x > 0f ? -1 : 1;
-            }
-            tmax = Math.min(tmax, t2);
-            if (tmin > tmax) return Float.POSITIVE_INFINITY;
-        }
-
-        // Y
-        if (Math.abs(dir.y) < 1e-6f) {
-            if (origin.y < minY || origin.y > maxY) return Float.POSITIVE_INFINITY;
-        } else {
-            float inv = 1f / dir.y;
-            float t1 = (minY - origin.y) * inv;
-            float t2 = (maxY - origin.y) * inv;
-            if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
-            if (t1 > tmin) {
-                tmin = t1;
-                hitAxis = 1;
-                hitSign = dir.y > 0f ? -1 : 1;
-            }
-            tmax = Math.min(tmax, t2);
-            if (tmin > tmax) return Float.POSITIVE_INFINITY;
-        }
-
-        // Z
-        if (Math.abs(dir.z) < 1e-6f) {
-            if (origin.z < minZ || origin.z > maxZ) return Float.POSITIVE_INFINITY;
-        } else {
-            float inv = 1f / dir.z;
-            float t1 = (minZ - origin.z) * inv;
-            float t2 = (maxZ - origin.z) * inv;
-            if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
-            if (t1 > tmin) {
-                tmin = t1;
-                hitAxis = 2;
-                hitSign = dir.z > 0f ? -1 : 1;
-            }
-            tmax = Math.min(tmax, t2);
-            if (tmin > tmax) return Float.POSITIVE_INFINITY;
-        }
-
-        if (hitAxis == -1) return Float.POSITIVE_INFINITY;
-
-        outNormal[0] = 0;
-        outNormal[1] = 0;
-        outNormal[2] = 0;
-        if (hitAxis == 0)      outNormal[0] = hitSign;
-        else if (hitAxis == 1) outNormal[1] = hitSign;
-        else                   outNormal[2] = hitSign;
-
-        return tmin;
+        return new Hit(pickHit.x, pickHit.y, pickHit.z, pickHit.nx, pickHit.ny, pickHit.nz);
     }
 
 
@@ -344,6 +195,7 @@ public class InputHandler {
         dPressed = GLFW.glfwGetKey(window, GLFW.GLFW_KEY_D) == GLFW.GLFW_PRESS;
         sprintPressed = GLFW.glfwGetKey(window, GLFW.GLFW_KEY_LEFT_SHIFT) == GLFW.GLFW_PRESS;
         crouchPressed = GLFW.glfwGetKey(window, GLFW.GLFW_KEY_LEFT_CONTROL) == GLFW.GLFW_PRESS;
+        jumpPressed = GLFW.glfwGetKey(window, GLFW.GLFW_KEY_SPACE) == GLFW.GLFW_PRESS;
 
         handleClicks();
     }
@@ -466,16 +318,47 @@ public class InputHandler {
         escWasDown = escDown;
         eWasDown = eDown;
 
+        updateHoverHit();
+    }
+
+    private void updateHoverHit() {
+        if (!blockChanges.drain(hoverChangeSink)) hoverStale = true;
+
+        Vector3f p = camera.getPosition();
+        boolean moved = Math.abs(p.x - hoverX) > HOVER_MOVE_EPS
+                     || Math.abs(p.y - hoverY) > HOVER_MOVE_EPS
+                     || Math.abs(p.z - hoverZ) > HOVER_MOVE_EPS
+                     || Math.abs(camera.getYaw() - hoverYaw) > HOVER_TURN_EPS
+                     || Math.abs(camera.getPitch() - hoverPitch) > HOVER_TURN_EPS;
+        // A chunk arriving or leaving can change where the ray stops.
+        int epoch = camera.getWorld().getChunkEpoch();
+        if (!moved && !hoverStale && epoch == hoverChunkEpoch) return;
+
+        hoverStale = false;
+        hoverChunkEpoch = epoch;
+        hoverX = p.x; hoverY = p.y; hoverZ = p.z;
+        hoverYaw = camera.getYaw();
+        hoverPitch = camera.getPitch();
         hoverHit = pickBlockFromCamera();
     }
 
+    // Only edits the hover ray could reach matter; anything else leaves the cached hit valid.
+    private void onRegionChanged(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        float eyeY = hoverY + EYE_HEIGHT;
+        float dx = Math.max(0f, Math.max(minX - hoverX, hoverX - maxX));
+        float dy = Math.max(0f, Math.max(minY - eyeY, eyeY - maxY));
+        float dz = Math.max(0f, Math.max(minZ - hoverZ, hoverZ - maxZ));
+        if (dx * dx + dy * dy + dz * dz <= PICK_MAX_DIST * PICK_MAX_DIST) hoverStale = true;
+    }
+
+    // Key state as of the last sampleInput(), since GLFW may only be polled from the main thread.
     public boolean isJumpPressed() {
         if (paused) return false;
-        return GLFW.glfwGetKey(window, GLFW.GLFW_KEY_SPACE) == GLFW.GLFW_PRESS;
+        return jumpPressed;
     }
 
     public boolean isCrouchPressed() {
         if (paused) return false;
-        return GLFW.glfwGetKey(window, GLFW.GLFW_KEY_LEFT_CONTROL) == GLFW.GLFW_PRESS;
+        return crouchPressed;
     }
 }
@@ -1,18 +1,17 @@
 package engine.light;
 
 import engine.world.Chunk;
+import engine.world.Long2ObjectMap;
 import engine.world.World;
 import engine.world.block.BlockState;
 import engine.world.block.BlockType;
 
 import java.util.ArrayDeque;
-import java.util.HashMap;
-import java.util.Map;
 
 public final class LightEngine {
     public static final int MAX_LIGHT = 15;
 
-    private final Map<Long, byte[]> skylight = new HashMap<>();
+    private final Long2ObjectMap<byte[]> skylight = new Long2ObjectMap<>();
 
     private static long packChunk(int cx, int cz) {
         return ((long) cx << 32) ^ (cz & 0xFFFFFFFFL);
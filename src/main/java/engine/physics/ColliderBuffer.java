@@ -0,0 +1,126 @@
+package engine.physics;
+
+import java.util.Arrays;
+
+import engine.world.Chunk;
+import engine.world.WorldCursor;
+import engine.world.block.BlockShapes;
+
+/**
+ * Reusable list of world-space boxes stored as parallel float arrays. The
+ * moving box is passed as a {@code float[6]} in the same
+ * {@code [minX, minY, minZ, maxX, maxY, maxZ]} layout {@link BlockShapes} uses, so
+ * filling and sweeping never allocate once the arrays have grown to fit.
+ */
+final class ColliderBuffer {
+    static final int MIN_X = 0, MIN_Y = 1, MIN_Z = 2, MAX_X = 3, MAX_Y = 4, MAX_Z = 5;
+
+    private float[] minX, minY, minZ, maxX, maxY, maxZ;
+    private int size;
+
+    ColliderBuffer(int capacity) {
+        capacity = Math.max(1, capacity);
+        minX = new float[capacity]; minY = new float[capacity]; minZ = new float[capacity];
+        maxX = new float[capacity]; maxY = new float[capacity]; maxZ = new float[capacity];
+    }
+
+    int size() { return size; }
+
+    void clear() { size = 0; }
+
+    /**
+     * Refills the buffer with the collision boxes of every block the box could
+     * touch while moving by (dx, dy, dz).
+     */
+    void collect(WorldCursor cursor, float[] box, float dx, float dy, float dz) {
+        final float PAD = 0.001f;
+        float minX = Math.min(box[MIN_X], box[MIN_X] + dx) - PAD;
+        float minY = Math.min(box[MIN_Y], box[MIN_Y] + dy) - PAD;
+        float minZ = Math.min(box[MIN_Z], box[MIN_Z] + dz) - PAD;
+        float maxX = Math.max(box[MAX_X], box[MAX_X] + dx) + PAD;
+        float maxY = Math.max(box[MAX_Y], box[MAX_Y] + dy) + PAD;
+        float maxZ = Math.max(box[MAX_Z], box[MAX_Z] + dz) + PAD;
+
+        int x0 = (int) Math.floor(minX);
+        int y0 = (int) Math.floor(minY);
+        int z0 = (int) Math.floor(minZ);
+        int x1 = (int) Math.floor(maxX);
+        int y1 = (int) Math.floor(maxY);
+        int z1 = (int) Math.floor(maxZ);
+
+        clear();
+        for (int y = y0; y <= y1; y++) {
+            if (y < 0 || y >= Chunk.HEIGHT) continue;
+            for (int z = z0; z <= z1; z++) {
+                for (int x = x0; x <= x1; x++) {
+                    int state = cursor.getState(x, y, z);
+                    if (state == 0) continue;
+                    float[] shape = BlockShapes.get(state);
+                    if (shape.length == 0) continue;
+                    addShape(shape, x, y, z);
+                }
+            }
+        }
+    }
+
+    /** Appends every box of a flattened shape, offset to the block at (bx, by, bz). */
+    void addShape(float[] shape, int bx, int by, int bz) {
+        for (int i = 0; i < shape.length; i += 6) {
+            if (size == minX.length) grow();
+            minX[size] = shape[i]     + bx;
+            minY[size] = shape[i + 1] + by;
+            minZ[size] = shape[i + 2] + bz;
+            maxX[size] = shape[i + 3] + bx;
+            maxY[size] = shape[i + 4] + by;
+            maxZ[size] = shape[i + 5] + bz;
+            size++;
+        }
+    }
+
+    private void grow() {
+        int n = minX.length * 2;
+        minX = Arrays.copyOf(minX, n); minY = Arrays.copyOf(minY, n); minZ = Arrays.copyOf(minZ, n);
+        maxX = Arrays.copyOf(maxX, n); maxY = Arrays.copyOf(maxY, n); maxZ = Arrays.copyOf(maxZ, n);
+    }
+
+    /** Returns the lowest collider top in {@code [above, limit]}, or NaN if there is none. */
+    float lowestTopBetween(float above, float limit) {
+        float best = Float.NaN;
+        for (int i = 0; i < size; i++) {
+            float top = maxY[i];
+            if (top >= above && top <= limit && !(top >= best)) best = top;
+        }
+        return best;
+    }
+
+    /** Clamps a move of the box along x so it stops at the first collider in the way. */
+    float sweepX(float[] box, float dx) {
+        for (int i = 0; i < size; i++) {
+            if (!(box[MAX_Y] > minY[i] && box[MIN_Y] < maxY[i])) continue;
+            if (!(box[MAX_Z] > minZ[i] && box[MIN_Z] < maxZ[i])) continue;
+            if (dx > 0f && box[MAX_X] <= minX[i])      dx = Math.min(dx, minX[i] - box[MAX_X]);
+            else if (dx < 0f && box[MIN_X] >= maxX[i]) dx = Math.max(dx, maxX[i] - box[MIN_X]);
+        }
+        return dx;
+    }
+
+    float sweepY(float[] box, float dy) {
+        for (int i = 0; i < size; i++) {
+            if (!(box[MAX_X] > minX[i] && box[MIN_X] < maxX[i])) continue;
+            if (!(box[MAX_Z] > minZ[i] && box[MIN_Z] < maxZ[i])) continue;
+            if (dy > 0f && box[MAX_Y] <= minY[i])      dy = Math.min(dy, minY[i] - box[MAX_Y]);
+            else if (dy < 0f && box[MIN_Y] >= maxY[i]) dy = Math.max(dy, maxY[i] - box[MIN_Y]);
+        }
+        return dy;
+    }
+
+    float sweepZ(float[] box, float dz) {
+        for (int i = 0; i < size; i++) {
+            if (!(box[MAX_X] > minX[i] && box[MIN_X] < maxX[i])) continue;
+            if (!(box[MAX_Y] > minY[i] && box[MIN_Y] < maxY[i])) continue;
+            if (dz > 0f && box[MAX_Z] <= minZ[i])      dz = Math.min(dz, minZ[i] - box[MAX_Z]);
+            else if (dz < 0f && box[MIN_Z] >= maxZ[i]) dz = Math.max(dz, maxZ[i] - box[MIN_Z]);
+        }
+        return dz;
+    }
+}
@@ -0,0 +1,339 @@
+package engine.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import engine.world.World;
+import engine.world.WorldCursor;
+
+/**
+ * Physics for many simple entities such as mobs and dropped items. State is
+ * kept as parallel arrays indexed by entity id, and each tick runs in two
+ * phases over id ranges:
+ * <ol>
+ * <li>entities overlapping each other, found through a uniform-grid spatial
+ * hash, push each other apart by adjusting their own velocity;</li>
+ * <li>gravity is applied and each entity's box is swept against the voxel grid,
+ * with one collider gather per entity covering its whole move.</li>
+ * </ol>
+ * A phase only writes the state of the entity it is working on and reads other
+ * entities' positions, which don't change until the next phase, so the ranges
+ * can run on different threads and the result doesn't depend on how many.
+ * <p>
+ * Entities inside chunks that aren't loaded are left alone until they are.
+ * Adding and removing entities must not overlap a tick.
+ */
+public final class EntityPhysics {
+    private static final float GRAVITY = -25f;
+    private static final float TERMINAL_VELOCITY = -60f;
+    private static final float GROUND_DRAG = 10f;
+    // Velocity gained per second for each block of overlap with another entity.
+    private static final float PUSH_STRENGTH = 200f;
+
+    private final World world;
+    private final Worker[] workers;
+
+    private int capacity;
+    private int highWater = 0;
+    private int count = 0;
+    private int[] freeIds = new int[16];
+    private int freeCount = 0;
+
+    private boolean[] alive;
+    private boolean[] onGround;
+    private float[] posX, posY, posZ;
+    private float[] velX, velY, velZ;
+    private float[] halfWidth, height;
+
+    // Spatial hash, rebuilt at the start of every tick.
+    private float cellSize = 1f;
+    private int[] cellOf = new int[0];
+    private int[] bucketStart = new int[1];
+    private int[] bucketEntries = new int[0];
+    private int[] bucketFill = new int[0];
+    private int bucketMask = 0;
+
+    /**
+     * @param parallelism how many id ranges a parallel tick is split into; each
+     *                    range has its own scratch buffers
+     */
+    public EntityPhysics(World world, int parallelism) {
+        this.world = world;
+        this.workers = new Worker[Math.max(1, parallelism)];
+        for (int i = 0; i < workers.length; i++) workers[i] = new Worker();
+        allocate(64);
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        alive = alive == null ? new boolean[capacity] : Arrays.copyOf(alive, capacity);
+        onGround = onGround == null ? new boolean[capacity] : Arrays.copyOf(onGround, capacity);
+        posX = grow(posX); posY = grow(posY); posZ = grow(posZ);
+        velX = grow(velX); velY = grow(velY); velZ = grow(velZ);
+        halfWidth = grow(halfWidth); height = grow(height);
+    }
+
+    private float[] grow(float[] a) {
+        return a == null ? new float[capacity] : Arrays.copyOf(a, capacity);
+    }
+
+    /** Adds an entity standing at (x, y, z) with the given box size and returns its id. */
+    public int add(float x, float y, float z, float width, float entityHeight) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (highWater == capacity) allocate(capacity * 2);
+            id = highWater++;
+        }
+        alive[id] = true;
+        onGround[id] = false;
+        posX[id] = x; posY[id] = y; posZ[id] = z;
+        velX[id] = 0f; velY[id] = 0f; velZ[id] = 0f;
+        halfWidth[id] = width * 0.5f;
+        height[id] = entityHeight;
+        count++;
+        return id;
+    }
+
+    public void remove(int id) {
+        if (id < 0 || id >= highWater || !alive[id]) return;
+        alive[id] = false;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
+        count--;
+    }
+
+    public int size() { return count; }
+    public boolean isAlive(int id) { return id >= 0 && id < highWater && alive[id]; }
+
+    public float getX(int id) { return posX[id]; }
+    public float getY(int id) { return posY[id]; }
+    public float getZ(int id) { return posZ[id]; }
+    public float getVelocityX(int id) { return velX[id]; }
+    public float getVelocityY(int id) { return velY[id]; }
+    public float getVelocityZ(int id) { return velZ[id]; }
+    public boolean isOnGround(int id) { return onGround[id]; }
+
+    public void setPosition(int id, float x, float y, float z) {
+        posX[id] = x; posY[id] = y; posZ[id] = z;
+    }
+
+    public void setVelocity(int id, float vx, float vy, float vz) {
+        velX[id] = vx; velY[id] = vy; velZ[id] = vz;
+    }
+
+    /** Advances every entity on the calling thread. */
+    public void tick(float dt) {
+        buildSpatialHash();
+        workers[0].setRange(0, highWater);
+        workers[0].separate(dt);
+        workers[0].integrate(dt);
+    }
+
+    /** Advances every entity, running each phase's id ranges on the executor. */
+    public void tick(float dt, ExecutorService executor) throws InterruptedException {
+        buildSpatialHash();
+        int per = (highWater + workers.length - 1) / workers.length;
+        for (int i = 0; i < workers.length; i++) {
+            int from = Math.min(highWater, i * per);
+            workers[i].setRange(from, Math.min(highWater, from + per));
+        }
+
+        List<Callable<Void>> phase = new ArrayList<>(workers.length);
+        for (Worker w : workers) phase.add(() -> { w.separate(dt); return null; });
+        runAll(executor, phase);
+        phase.clear();
+        for (Worker w : workers) phase.add(() -> { w.integrate(dt); return null; });
+        runAll(executor, phase);
+    }
+
+    private static void runAll(ExecutorService executor, List<Callable<Void>> tasks) throws InterruptedException {
+        for (Future<Void> f : executor.invokeAll(tasks)) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Calls the consumer with the id of every entity whose box overlaps the
+     * given box. Candidates come from the spatial hash built at the start of
+     * the last tick, so entities added since then are not found.
+     */
+    public void forEachOverlapping(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+                                   IntConsumer consumer) {
+        if (bucketEntries.length == 0) return;
+        int cx0 = cell(minX), cy0 = cell(minY), cz0 = cell(minZ);
+        int cx1 = cell(maxX), cy1 = cell(maxY), cz1 = cell(maxZ);
+        // Pad by a cell: entities are filed under the cell of their centre.
+        for (int cy = cy0 - 1; cy <= cy1 + 1; cy++) {
+            for (int cz = cz0 - 1; cz <= cz1 + 1; cz++) {
+                for (int cx = cx0 - 1; cx <= cx1 + 1; cx++) {
+                    int cellHash = hashCell(cx, cy, cz);
+                    int b = cellHash & bucketMask;
+                    for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+                        int j = bucketEntries[k];
+                        if (cellOf[j] != cellHash || !alive[j]) continue;
+                        if (posX[j] + halfWidth[j] <= minX || posX[j] - halfWidth[j] >= maxX) continue;
+                        if (posZ[j] + halfWidth[j] <= minZ || posZ[j] - halfWidth[j] >= maxZ) continue;
+                        if (posY[j] + height[j] <= minY || posY[j] >= maxY) continue;
+                        consumer.accept(j);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cell(float v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    private static int hashCell(int cx, int cy, int cz) {
+        int h = cx * 0x8da6b343 ^ cy * 0xd8163841 ^ cz * 0xcb1ab31f;
+        return h ^ (h >>> 15);
+    }
+
+    /**
+     * Files every live entity under the cell of its centre with a counting sort
+     * into power-of-two buckets. Cells are at least as large as the biggest
+     * entity, so overlapping entities are always in neighbouring cells.
+     */
+    private void buildSpatialHash() {
+        float maxSize = 0.25f;
+        for (int i = 0; i < highWater; i++) {
+            if (!alive[i]) continue;
+            maxSize = Math.max(maxSize, Math.max(halfWidth[i] * 2f, height[i]));
+        }
+        cellSize = maxSize;
+
+        int buckets = Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1;
+        bucketMask = buckets - 1;
+        if (cellOf.length < capacity) cellOf = new int[capacity];
+        if (bucketStart.length < buckets + 1) bucketStart = new int[buckets + 1];
+        else Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        if (bucketEntries.length < count) bucketEntries = new int[Math.max(count, capacity)];
+
+        for (int i = 0; i < highWater; i++) {
+            if (!alive[i]) continue;
+            int h = hashCell(cell(posX[i]), cell(posY[i] + height[i] * 0.5f), cell(posZ[i]));
+            cellOf[i] = h;
+            bucketStart[(h & bucketMask) + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) bucketStart[b + 1] += bucketStart[b];
+        if (bucketFill.length < buckets) bucketFill = new int[buckets];
+        System.arraycopy(bucketStart, 0, bucketFill, 0, buckets);
+        for (int i = 0; i < highWater; i++) {
+            if (!alive[i]) continue;
+            bucketEntries[bucketFill[cellOf[i] & bucketMask]++] = i;
+        }
+    }
+
+    /** Per-range scratch, so ranges on different threads share nothing mutable. */
+    private final class Worker {
+        private final WorldCursor cursor = new WorldCursor(world, false);
+        private final ColliderBuffer colliders = new ColliderBuffer(64);
+        private final float[] box = new float[6];
+        private final int[] visited = new int[27];
+        private int from, to;
+
+        void setRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /** Pushes overlapping entities apart horizontally, proportional to how deep they overlap. */
+        void separate(float dt) {
+            for (int i = from; i < to; i++) {
+                if (!alive[i]) continue;
+                float x = posX[i], y = posY[i] + height[i] * 0.5f, z = posZ[i];
+                int cx = cell(x), cy = cell(y), cz = cell(z);
+                int seen = 0;
+                float pushX = 0f, pushZ = 0f;
+
+                for (int oy = -1; oy <= 1; oy++) {
+                    for (int oz = -1; oz <= 1; oz++) {
+                        for (int ox = -1; ox <= 1; ox++) {
+                            int cellHash = hashCell(cx + ox, cy + oy, cz + oz);
+                            int b = cellHash & bucketMask;
+                            // Neighbouring cells can land in the same bucket; scan it once.
+                            boolean dup = false;
+                            for (int k = 0; k < seen; k++) if (visited[k] == b) { dup = true; break; }
+                            if (dup) continue;
+                            visited[seen++] = b;
+
+                            for (int k = bucketStart[b]; k < bucketStart[b + 1]; k++) {
+                                int j = bucketEntries[k];
+                                if (j == i) continue;
+                                float reach = halfWidth[i] + halfWidth[j];
+                                float dx = x - posX[j], dz = z - posZ[j];
+                                if (Math.abs(dx) >= reach || Math.abs(dz) >= reach) continue;
+                                if (posY[i] >= posY[j] + height[j] || posY[j] >= posY[i] + height[i]) continue;
+
+                                float dist = (float) Math.sqrt(dx * dx + dz * dz);
+                                if (dist < 1e-4f) {
+                                    // Coincident centres: split them along x by id so the pair moves apart.
+                                    pushX += (i < j ? -1f : 1f) * reach;
+                                } else {
+                                    float depth = reach - dist;
+                                    if (depth <= 0f) continue;
+                                    pushX += dx / dist * depth;
+                                    pushZ += dz / dist * depth;
+                                }
+                            }
+                        }
+                    }
+                }
+                velX[i] += pushX * PUSH_STRENGTH * dt;
+                velZ[i] += pushZ * PUSH_STRENGTH * dt;
+            }
+        }
+
+        /** Applies gravity and drag, then sweeps the box through the voxel grid along y, x and z. */
+        void integrate(float dt) {
+            for (int i = from; i < to; i++) {
+                if (!alive[i]) continue;
+                int bx = (int) Math.floor(posX[i]), bz = (int) Math.floor(posZ[i]);
+                if (cursor.getChunk(bx >> 4, bz >> 4) == null) continue;
+
+                float vy = Math.max(TERMINAL_VELOCITY, velY[i] + GRAVITY * dt);
+                float vx = velX[i], vz = velZ[i];
+                if (onGround[i]) {
+                    float keep = Math.max(0f, 1f - GROUND_DRAG * dt);
+                    vx *= keep;
+                    vz *= keep;
+                }
+
+                float hw = halfWidth[i];
+                box[ColliderBuffer.MIN_X] = posX[i] - hw; box[ColliderBuffer.MAX_X] = posX[i] + hw;
+                box[ColliderBuffer.MIN_Y] = posY[i];      box[ColliderBuffer.MAX_Y] = posY[i] + height[i];
+                box[ColliderBuffer.MIN_Z] = posZ[i] - hw; box[ColliderBuffer.MAX_Z] = posZ[i] + hw;
+
+                float dx = vx * dt, dy = vy * dt, dz = vz * dt;
+                colliders.collect(cursor, box, dx, dy, dz);
+
+                float ry = colliders.sweepY(box, dy);
+                box[ColliderBuffer.MIN_Y] += ry; box[ColliderBuffer.MAX_Y] += ry;
+                float rx = colliders.sweepX(box, dx);
+                box[ColliderBuffer.MIN_X] += rx; box[ColliderBuffer.MAX_X] += rx;
+                float rz = colliders.sweepZ(box, dz);
+
+                onGround[i] = dy < 0f && ry != dy;
+                if (ry != dy) vy = 0f;
+                if (rx != dx) vx = 0f;
+                if (rz != dz) vz = 0f;
+
+                posX[i] += rx; posY[i] += ry; posZ[i] += rz;
+                velX[i] = vx; velY[i] = vy; velZ[i] = vz;
+            }
+        }
+    }
+}
@@ -1,21 +1,24 @@
 package engine.physics;
 
 import engine.world.World;
-import engine.world.AbstractBlock;
-import engine.world.Chunk;
+import engine.world.WorldCursor;
 import engine.world.block.BlockState;
 import engine.world.block.BlockType;
-import engine.world.block.Slab;
-import engine.world.block.Stairs;
 import engine.rendering.Camera;
 import org.joml.Vector3f;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class PhysicsEngine {
     private final World world;
     private final Camera camera;
+    private final WorldCursor cursor;
+
+    // Scratch state reused by every sweep so a tick doesn't allocate.
+    private final ColliderBuffer colliders = new ColliderBuffer(64);
+    private final ColliderBuffer stepColliders = new ColliderBuffer(64);
+    private final float[] box = new float[6];
+    private final float[] raisedBox = new float[6];
+    private final float[] stepBox = new float[6];
+    private final Submersion submersion = new Submersion();
 
     private static final float PLAYER_WIDTH = 0.6f;
     private static final float PLAYER_DEPTH = 0.6f;
@@ -38,10 +41,13 @@ public class PhysicsEngine {
 
     private static final float STEP_HEIGHT = 0.5f;
     private float pendingStepRise = 0f;
+    private int stepUpCount = 0;
+    private float lastStepRise = 0f;
 
     public PhysicsEngine(World world, Camera camera) {
         this.world = world;
         this.camera = camera;
+        this.cursor = new WorldCursor(world);
     }
 
     public boolean isOnGround() { return isOnGround; }
@@ -84,11 +90,11 @@ public class PhysicsEngine {
         }
 
         Vector3f pos = camera.getPosition();
-        AABB player = playerAABB(pos.x, pos.y, pos.z, playerHeight);
+        float[] player = playerBox(box, pos.x, pos.y, pos.z, playerHeight);
 
         float dy = velocityY * delta;
-        List<AABB> colliders = collectNearbyColliders(player, 0f, dy, 0f);
-        float resolvedDy = collideY(player, colliders, dy);
+        colliders.collect(cursor, player, 0f, dy, 0f);
+        float resolvedDy = colliders.sweepY(player, dy);
 
         if (resolvedDy != dy) {
             if (dy < 0) isOnGround = true;
@@ -97,23 +103,22 @@ public class PhysicsEngine {
             isOnGround = false;
         }
 
-        player = player.offset(0f, resolvedDy, 0f);
-        pos.y = player.minY;
+        pos.y = player[ColliderBuffer.MIN_Y] + resolvedDy;
     }
 
     public float resolveHorizontalX(float dx, float playerHeight) {
         Vector3f pos = camera.getPosition();
-        AABB player = playerAABB(pos.x, pos.y, pos.z, playerHeight);
-        List<AABB> colliders = collectNearbyColliders(player, dx, 0f, 0f);
-        float resolvedDx = collideX(player, colliders, dx);
+        float[] player = playerBox(box, pos.x, pos.y, pos.z, playerHeight);
+        colliders.collect(cursor, player, dx, 0f, 0f);
+        float resolvedDx = colliders.sweepX(player, dx);
 
         if (Math.abs(resolvedDx - dx) > 1e-6f && STEP_HEIGHT > 0f && allowStepUp()) {
-            float stepRise = tryStepUp(player, colliders, dx, 0f, STEP_HEIGHT);
+            float stepRise = tryStepUp(player, dx, 0f, STEP_HEIGHT);
             if (stepRise > 0f) {
                 pendingStepRise = Math.max(pendingStepRise, stepRise);
-                AABB raised = player.offset(0f, stepRise, 0f);
-                List<AABB> col2 = collectNearbyColliders(raised, dx, 0f, 0f);
-                resolvedDx = collideX(raised, col2, dx);
+                // The step-up gather already covers the raised move.
+                float[] raised = offsetY(player, stepRise, raisedBox);
+                resolvedDx = stepColliders.sweepX(raised, dx);
             }
         }
         return resolvedDx;
@@ -121,17 +126,17 @@ public class PhysicsEngine {
 
     public float resolveHorizontalZ(float dz, float playerHeight) {
         Vector3f pos = camera.getPosition();
-        AABB player = playerAABB(pos.x, pos.y, pos.z, playerHeight);
-        List<AABB> colliders = collectNearbyColliders(player, 0f, 0f, dz);
-        float resolvedDz = collideZ(player, colliders, dz);
+        float[] player = playerBox(box, pos.x, pos.y, pos.z, playerHeight);
+        colliders.collect(cursor, player, 0f, 0f, dz);
+        float resolvedDz = colliders.sweepZ(player, dz);
 
         if (Math.abs(resolvedDz - dz) > 1e-6f && STEP_HEIGHT > 0f && allowStepUp()) {
-            float stepRise = tryStepUp(player, colliders, 0f, dz, STEP_HEIGHT);
+            float stepRise = tryStepUp(player, 0f, dz, STEP_HEIGHT);
             if (stepRise > 0f) {
                 pendingStepRise = Math.max(pendingStepRise, stepRise);
-                AABB raised = player.offset(0f, stepRise, 0f);
-                List<AABB> col2 = collectNearbyColliders(raised, 0f, 0f, dz);
-                resolvedDz = collideZ(raised, col2, dz);
+                // The step-up gather already covers the raised move.
+                float[] raised = offsetY(player, stepRise, raisedBox);
+                resolvedDz = stepColliders.sweepZ(raised, dz);
             }
         }
         return resolvedDz;
@@ -141,9 +146,9 @@ public class PhysicsEngine {
         Vector3f pos = camera.getPosition();
         float h = crouching ? CROUCH_HEIGHT : PLAYER_HEIGHT;
         float dx = newX - pos.x;
-        AABB player = playerAABB(pos.x, pos.y, pos.z, h);
-        List<AABB> colliders = collectNearbyColliders(player, dx, 0f, 0f);
-        float resolved = collideX(player, colliders, dx);
+        float[] player = playerBox(box, pos.x, pos.y, pos.z, h);
+        colliders.collect(cursor, player, dx, 0f, 0f);
+        float resolved = colliders.sweepX(player, dx);
         return Math.abs(resolved - dx) < 1e-6f;
     }
 
@@ -151,101 +156,63 @@ public class PhysicsEngine {
         Vector3f pos = camera.getPosition();
         float h = crouching ? CROUCH_HEIGHT : PLAYER_HEIGHT;
         float dz = newZ - pos.z;
-        AABB player = playerAABB(pos.x, pos.y, pos.z, h);
-        List<AABB> colliders = collectNearbyColliders(player, 0f, 0f, dz);
-        float resolved = collideZ(player, colliders, dz);
+        float[] player = playerBox(box, pos.x, pos.y, pos.z, h);
+        colliders.collect(cursor, player, 0f, 0f, dz);
+        float resolved = colliders.sweepZ(player, dz);
         return Math.abs(resolved - dz) < 1e-6f;
     }
 
-    private AABB playerAABB(float x, float y, float z, float height) {
+    private static float[] playerBox(float[] out, float x, float y, float z, float height) {
         float halfW = PLAYER_WIDTH * 0.5f;
         float halfD = PLAYER_DEPTH * 0.5f;
-        return new AABB(x - halfW, y, z - halfD, x + halfW, y + height, z + halfD);
-    }
-
-    private List<AABB> collectNearbyColliders(AABB player, float dx, float dy, float dz) {
-        final float PAD = 0.001f;
-        float minX = Math.min(player.minX, player.minX + dx) - PAD;
-        float minY = Math.min(player.minY, player.minY + dy) - PAD;
-        float minZ = Math.min(player.minZ, player.minZ + dz) - PAD;
-        float maxX = Math.max(player.maxX, player.maxX + dx) + PAD;
-        float maxY = Math.max(player.maxY, player.maxY + dy) + PAD;
-        float maxZ = Math.max(player.maxZ, player.maxZ + dz) + PAD;
-
-        int x0 = (int) Math.floor(minX);
-        int y0 = (int) Math.floor(minY);
-        int z0 = (int) Math.floor(minZ);
-        int x1 = (int) Math.floor(maxX);
-        int y1 = (int) Math.floor(maxY);
-        int z1 = (int) Math.floor(maxZ);
-
-        ArrayList<AABB> out = new ArrayList<>();
-        for (int y = y0; y <= y1; y++) {
-            if (y < 0 || y >= Chunk.HEIGHT) continue;
-            for (int z = z0; z <= z1; z++) {
-                for (int x = x0; x <= x1; x++) {
-                    int state = getStateAt(world, x, y, z);
-                    if (state == 0) continue;
-
-                    int typeId = BlockState.typeId(state);
-                    BlockType type = BlockType.fromId(typeId);
-                    if (type == null) continue;
-                    if (type == BlockType.AIR || type == BlockType.WATER) continue;
-
-                    getCollisionBoxesForState(state, out, x, y, z);
-                }
-            }
-        }
+        out[ColliderBuffer.MIN_X] = x - halfW; out[ColliderBuffer.MIN_Y] = y;          out[ColliderBuffer.MIN_Z] = z - halfD;
+        out[ColliderBuffer.MAX_X] = x + halfW; out[ColliderBuffer.MAX_Y] = y + height; out[ColliderBuffer.MAX_Z] = z + halfD;
         return out;
     }
 
-    private static void getCollisionBoxesForState(int state, List<AABB> out, int bx, int by, int bz) {
-    	AbstractBlock block = AbstractBlock.fromState(state);
-
-        for (AABB local : block.getCollisionBoxes()) {
-            out.add(local.offset(bx, by, bz));
-        }
-    }
-
-    private float collideX(AABB player, List<AABB> colliders, float dx) {
-        float out = dx;
-        for (AABB c : colliders) out = c.collideX(player, out);
-        return out;
-    }
-    private float collideY(AABB player, List<AABB> colliders, float dy) {
-        float out = dy;
-        for (AABB c : colliders) out = c.collideY(player, out);
-        return out;
-    }
-    private float collideZ(AABB player, List<AABB> colliders, float dz) {
-        float out = dz;
-        for (AABB c : colliders) out = c.collideZ(player, out);
+    private static float[] offsetY(float[] box, float dy, float[] out) {
+        out[ColliderBuffer.MIN_X] = box[ColliderBuffer.MIN_X]; out[ColliderBuffer.MIN_Y] = box[ColliderBuffer.MIN_Y] + dy;
+        out[ColliderBuffer.MIN_Z] = box[ColliderBuffer.MIN_Z]; out[ColliderBuffer.MAX_X] = box[ColliderBuffer.MAX_X];
+        out[ColliderBuffer.MAX_Y] = box[ColliderBuffer.MAX_Y] + dy; out[ColliderBuffer.MAX_Z] = box[ColliderBuffer.MAX_Z];
         return out;
     }
 
-    private float tryStepUp(AABB player, List<AABB> ignored, float dx, float dz, float maxStep) {
-        final float stepInc = 0.05f;
-        float climbed = 0f;
-        while (climbed < maxStep) {
-            climbed += stepInc;
-            AABB raised = player.offset(0f, climbed, 0f);
-            List<AABB> col = collectNearbyColliders(raised, dx, 0f, dz);
-            float dyFree = collideY(player, col, climbed);
-            if (Math.abs(dyFree - climbed) > 1e-4f) continue;
-
-            float support = collideY(raised, col, -0.25f);
-            boolean hasSupport = (support < 0f) && (Math.abs(support) < 1.25f - 1e-4f);
-            if (!hasSupport) continue;
-
-            float dxFree = collideX(raised, col, dx);
-            float dzFree = collideZ(raised, col, dz);
-            if (Math.abs(dxFree - dx) < 1e-4f && Math.abs(dzFree - dz) < 1e-4f) {
-                System.out.println(climbed);
-                return climbed;
+    /**
+     * Finds the smallest rise of at most {@code maxStep} that frees the
+     * horizontal move. The candidates are the tops of the colliders around the
+     * move, all gathered in one pass, tried from the lowest up; a rise must
+     * also leave head room. Returns 0 if no candidate works.
+     */
+    private float tryStepUp(float[] player, float dx, float dz, float maxStep) {
+        stepColliders.collect(cursor, player, dx, maxStep, dz);
+        final float EPS = 1e-4f;
+        float feet = player[ColliderBuffer.MIN_Y];
+        float tried = feet;
+
+        while (true) {
+            float top = stepColliders.lowestTopBetween(tried + EPS, feet + maxStep + EPS);
+            if (Float.isNaN(top)) return 0f;
+            tried = top;
+            float rise = top - feet;
+
+            float dyFree = stepColliders.sweepY(player, rise);
+            if (Math.abs(dyFree - rise) > EPS) return 0f; // anything higher is blocked too
+
+            float[] raised = offsetY(player, rise, stepBox);
+            float dxFree = stepColliders.sweepX(raised, dx);
+            float dzFree = stepColliders.sweepZ(raised, dz);
+            if (Math.abs(dxFree - dx) < EPS && Math.abs(dzFree - dz) < EPS) {
+                stepUpCount++;
+                lastStepRise = rise;
+                return rise;
             }
         }
-        return 0f;
     }
+
+    /** How many times the player has stepped up onto something, for debugging. */
+    public int getStepUpCount() { return stepUpCount; }
+
+    public float getLastStepRise() { return lastStepRise; }
     
     private static final class Submersion {
         boolean feet, torso, head;
@@ -258,7 +225,7 @@ public class PhysicsEngine {
         int yFeet  = (int) Math.floor(pos.y);
         int yTorso = (int) Math.floor(pos.y + EYE_HEIGHT * 0.5f);
         int yHead  = (int) Math.floor(pos.y + EYE_HEIGHT);
-        Submersion s = new Submersion();
+        Submersion s = submersion;
         s.feet  = isWaterAt(gx, yFeet,  gz);
         s.torso = isWaterAt(gx, yTorso, gz);
         s.head  = isWaterAt(gx, yHead,  gz);
@@ -268,14 +235,10 @@ public class PhysicsEngine {
     }
 
     private boolean isWaterAt(int x, int y, int z) {
-        int state = getStateAt(world, x, y, z);
+        int state = cursor.getState(x, y, z);
         return BlockState.typeId(state) == BlockType.WATER.getId();
     }
 
-    private static int getStateAt(World world, int x, int y, int z) {
-        return world.getBlock(x, y, z).getState();
-    }
-
     public static final class AABB {
         public final float minX, minY, minZ;
         public final float maxX, maxY, maxZ;
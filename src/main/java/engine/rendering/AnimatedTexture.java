@@ -3,21 +3,26 @@ package engine.rendering;
 import org.lwjgl.opengl.GL30;
 
 public class AnimatedTexture extends Texture {
-	private final int frames;
-	private final float frameHeightFraction;
+	private int frames = 1;
+	private float frameHeightFraction = 1f;
 	private final float frameDuration;
 	private float timer = 0f;
 	private int currentFrame = 0;
 
 	public AnimatedTexture(String filepath, float frameDurationSeconds) {
 		super(filepath);
+		this.frameDuration = Math.max(0.01f, frameDurationSeconds);
+	}
+
+	@Override
+	protected void onLoaded() {
 		int detectedFrames = Math.max(1, height / Math.max(1, width));
 		this.frames = detectedFrames;
 		this.frameHeightFraction = 1.0f / (float) frames;
-		this.frameDuration = Math.max(0.01f, frameDurationSeconds);
 	}
 
 	public void update(float deltaSeconds) {
+		ensureLoaded();
 		if (frames <= 1)
 			return;
 		timer += deltaSeconds;
@@ -28,6 +33,7 @@ public class AnimatedTexture extends Texture {
 	}
 
 	public float getFrameOffset() {
+		ensureLoaded();
 		int totalHeight = this.height;
 		int framePixels = this.width;
 		if (totalHeight <= 0 || framePixels <= 0)
@@ -39,6 +45,7 @@ public class AnimatedTexture extends Texture {
 	}
 
 	public float getFrameScale() {
+		ensureLoaded();
 		int totalHeight = this.height;
 		int framePixels = this.width;
 		if (totalHeight <= 0 || framePixels <= 0)
@@ -51,6 +58,7 @@ public class AnimatedTexture extends Texture {
 
 	@Override
 	public void bind() {
+		ensureLoaded();
 		GL30.glActiveTexture(GL30.GL_TEXTURE0);
 		if (id != 0)
 			GL30.glBindTexture(GL30.GL_TEXTURE_2D, id);
@@ -75,6 +83,7 @@ public class AnimatedTexture extends Texture {
 	}
 
 	public int getFrames() {
+		ensureLoaded();
 		return frames;
 	}
 
@@ -83,6 +92,7 @@ public class AnimatedTexture extends Texture {
 	}
 
 	public float getFrameHeightFraction() {
+		ensureLoaded();
 		return frameHeightFraction;
 	}
 }
\ No newline at end of file
@@ -14,6 +14,8 @@ import engine.world.block.BlockState;
 
 public class Camera {
     private Vector3f position;
+    // Where the camera is drawn from; trails position when the simulation interpolates it.
+    private final Vector3f renderPosition = new Vector3f();
     private float pitch, yaw;
     private Matrix4f projection;
     private final float FOV = 71f;
@@ -31,6 +33,7 @@ public class Camera {
         this.height = height;
         this.renderDistance = renderDistance;
         position = new Vector3f(8, levelY, 30);
+        renderPosition.set(position);
         pitch = -30;
         yaw = 0;
         projection = new Matrix4f().perspective((float)Math.toRadians(FOV), (float)width/height, NEAR, FAR);
@@ -45,7 +48,7 @@ public class Camera {
         view.identity()
             .rotate((float)Math.toRadians(pitch), new Vector3f(1, 0, 0))
             .rotate((float)Math.toRadians(yaw),   new Vector3f(0, 1, 0))
-            .translate(new Vector3f(-position.x, -position.y - 1.6f, -position.z));
+            .translate(new Vector3f(-renderPosition.x, -renderPosition.y - 1.6f, -renderPosition.z));
         return view;
     }
 
@@ -56,6 +59,14 @@ public class Camera {
     public Vector3f getPosition() {
         return position;
     }
+
+    public Vector3f getRenderPosition() {
+        return renderPosition;
+    }
+
+    public void setRenderPosition(float x, float y, float z) {
+        renderPosition.set(x, y, z);
+    }
     
     public Vector3f getLookDirection() {
         float yawRad = (float)Math.toRadians(getYaw());
@@ -92,7 +103,10 @@ public class Camera {
     public void setYaw(float yaw) { this.yaw = yaw; }
     public float getYaw() { return yaw; }
 
-    public void setPosition(Vector3f pos) { this.position.set(pos); }
+    public void setPosition(Vector3f pos) {
+        this.position.set(pos);
+        this.renderPosition.set(pos);
+    }
     public void setAspect(int w, int h) {
         this.width = w;
         this.height = h;
@@ -4,8 +4,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 import engine.world.AbstractBlock;
-import engine.world.World;
+import engine.world.WorldCursor;
 import engine.world.AbstractBlock.Facing;
+import engine.world.block.BlockState;
 import engine.world.block.BlockType;
 
 public class FaceRenderer {
@@ -273,7 +274,7 @@ public class FaceRenderer {
         return quads;
     }
     
-    public static float cornerAO(World world, int gx, int gy, int gz, int face, int cornerIndex) {
+    public static float cornerAO(WorldCursor world, int gx, int gy, int gz, int face, int cornerIndex) {
         int ux = UAX[face][0],  uy = UAX[face][1],  uz = UAX[face][2];
         int vx = VAX[face][0],  vy = VAX[face][1],  vz = VAX[face][2];
 
@@ -284,9 +285,9 @@ public class FaceRenderer {
         int sx2x = gx + vSign*vx, sx2y = gy + vSign*vy, sx2z = gz + vSign*vz;
         int scx  = gx + uSign*ux + vSign*vx, scy  = gy + uSign*uy + vSign*vy, scz  = gz + uSign*uz + vSign*vz;
 
-        boolean s1 = isSolid(world.getBlock(sx1x, sx1y, sx1z));
-        boolean s2 = isSolid(world.getBlock(sx2x, sx2y, sx2z));
-        boolean sc = isSolid(world.getBlock(scx , scy , scz ));
+        boolean s1 = isSolid(world.getState(sx1x, sx1y, sx1z));
+        boolean s2 = isSolid(world.getState(sx2x, sx2y, sx2z));
+        boolean sc = isSolid(world.getState(scx , scy , scz ));
 
         int occ = (s1?1:0) + (s2?1:0) + (sc?1:0);
         if (s1 && s2)      return 0.40f;
@@ -295,9 +296,8 @@ public class FaceRenderer {
         return 1.00f;
     }
     
-    private static boolean isSolid(AbstractBlock b) {
-        if (b == null) return false;
-        BlockType t = b.getType();
+    private static boolean isSolid(int state) {
+        BlockType t = BlockType.fromId(BlockState.typeId(state));
         return t != null && t != BlockType.AIR && t != BlockType.WATER;
     }
 
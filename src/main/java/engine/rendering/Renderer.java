@@ -6,8 +6,12 @@ import engine.light.LightEngine;
 import engine.rendering.FaceRenderer.FaceDirection;
 import engine.world.Chunk;
 import engine.world.ChunkMesh;
+import engine.world.Long2ObjectMap;
 import engine.world.World;
+import engine.world.WorldCursor;
 import engine.world.AbstractBlock;
+import engine.world.BlockChangeFeed;
+import engine.world.block.BlockShapes;
 import engine.world.block.BlockState;
 import engine.world.block.BlockType;
 
@@ -36,10 +40,26 @@ public class Renderer {
 
     private final FloatBuffer matBuffer = MemoryUtil.memAllocFloat(16);
 
-    private final Map<Long, ChunkMesh> meshCache = new HashMap<>();
+    private final Long2ObjectMap<ChunkMesh> meshCache = new Long2ObjectMap<>();
     private final ConcurrentLinkedQueue<PendingMesh> pendingUpdates = new ConcurrentLinkedQueue<>();
     private final ConcurrentLinkedQueue<PendingLightingUpdate> pendingLightingUpdates = new ConcurrentLinkedQueue<>();
-    private final ConcurrentHashMap<Long, MeshState> meshStates = new ConcurrentHashMap<>();
+    private final Long2ObjectMap<MeshSlot> meshSlots = new Long2ObjectMap<>();
+    // Block edits are collected once per tick, so a chunk edited many times is rebuilt once.
+    private final BlockChangeFeed.Subscription blockChanges;
+    private final BlockChangeFeed.Sink staleBlockSink = new BlockChangeFeed.Sink() {
+        @Override
+        public void blockChanged(int x, int y, int z, int oldState, int newState) {
+            markBlockStale(x, z);
+        }
+
+        @Override
+        public void sectionChanged(int sectionX, int sectionY, int sectionZ, int borders) {
+            markChunkStale(sectionX, sectionZ, borders);
+        }
+    };
+    private final Set<Long> staleChunks = new HashSet<>();
+    // One per mesher thread; AO samples of neighbouring faces almost always hit the same chunk.
+    private final ThreadLocal<WorldCursor> aoCursor;
     private final ConcurrentHashMap<Integer, int[][]> radiusOffsetCache = new ConcurrentHashMap<>();
 
     private final ExecutorService mesherPool = Executors.newFixedThreadPool(Math.max(1, (Runtime.getRuntime().availableProcessors() / 2) / 2));
@@ -57,7 +77,19 @@ public class Renderer {
     private float timeOfDay01 = 0f;
     private static final float DAY_LENGTH_SEC = 4f * 60f;
 
-    private enum MeshState { BUILDING, READY, GPU_LOADED }
+    /**
+     * Build bookkeeping for one chunk's mesh, only touched on the render
+     * thread. Every invalidation raises {@code requested}; at most one build
+     * runs at a time, and one requested while it runs is started when it
+     * finishes, so any number of invalidations collapse into one rebuild.
+     */
+    private static final class MeshSlot {
+        int requested;
+        int building = -1;
+        int uploaded = -1;
+    }
+    // Versions are unique across slots, so a build started for a slot that was since dropped can't pass for a new one.
+    private int lastMeshVersion = 0;
 
     private static boolean isAirState(int s)   { return BlockState.typeId(s) == BlockType.AIR.getId(); }
     private static boolean isLiquidState(int s){ return BlockState.typeId(s) == BlockType.WATER.getId(); }
@@ -65,16 +97,18 @@ public class Renderer {
     private final class PendingMesh {
         final long key;
         final int cx, cz;
+        final int version;
         final Map<Texture, float[]> opaque;
         final Map<Texture, float[]> translucent;
         final boolean computeLightingImmediately;
         final Map<Texture, float[]> opaqueLighting;
         final Map<Texture, float[]> translucentLighting;
-        PendingMesh(long key, int cx, int cz, Map<Texture, float[]> opaque, Map<Texture, float[]> translucent, boolean computeLightingImmediately,
+        PendingMesh(long key, int cx, int cz, int version, Map<Texture, float[]> opaque, Map<Texture, float[]> translucent, boolean computeLightingImmediately,
                     Map<Texture, float[]> opaqueLighting, Map<Texture, float[]> translucentLighting) {
             this.key = key;
             this.cx = cx;
             this.cz = cz;
+            this.version = version;
             this.opaque = opaque;
             this.translucent = translucent;
             this.computeLightingImmediately = computeLightingImmediately;
@@ -96,7 +130,9 @@ public class Renderer {
 
     public Renderer(World world, Camera camera) {
         this.world = world;
+        this.aoCursor = ThreadLocal.withInitial(() -> new WorldCursor(world));
         this.camera = camera;
+        this.blockChanges = world.getChangeFeed().subscribe();
 
         setupGL();
         setupShaders();
@@ -296,6 +332,12 @@ public class Renderer {
     public void tick(float dt) {
         timeOfDay01 = (timeOfDay01 + (dt / DAY_LENGTH_SEC)) % 1.0f;
 
+        if (!blockChanges.drain(staleBlockSink)) {
+            // Edits were lost, so any mesh may be out of date.
+            meshCache.forEach((key, mesh) -> staleChunks.add(key));
+        }
+        flushStaleChunks();
+
         for (BlockType type : BlockType.values()) {
             if (type == null) continue;
             Texture[] textures = {type.back, type.bottom, type.front, type.left, type.right, type.top};
@@ -353,10 +395,20 @@ public class Renderer {
             
             PendingMesh pm = pendingUpdates.poll();
             if (pm == null) break;
+            MeshSlot slot = meshSlots.get(pm.key);
+            if (slot == null || pm.version <= slot.uploaded) continue;  // unloaded meanwhile, or older than what's shown
             ChunkMesh oldMesh = meshCache.get(pm.key);
+            if (slot.building == pm.version) slot.building = -1;
+            if (pm.version < slot.requested) {
+                // Invalidated while building: start the next build, and keep
+                // showing the current mesh rather than uploading an outdated one.
+                Chunk chunk = world.getChunkIfLoaded(pm.cx, pm.cz);
+                if (chunk != null && slot.building < 0) submitBuild(slot, pm.cx, pm.cz, chunk, true);
+                if (oldMesh != null) continue;
+            }
             ChunkMesh mesh = createChunkMesh(pm);
             meshCache.put(pm.key, mesh);
-            meshStates.put(pm.key, MeshState.GPU_LOADED);
+            slot.uploaded = pm.version;
             if (oldMesh != null) oldMesh.delete();
             
             final int cx = pm.cx, cz = pm.cz;
@@ -398,16 +450,13 @@ public class Renderer {
 
             long key = pack(cx, cz);
             ChunkMesh mesh = meshCache.get(key);
-            MeshState state = meshStates.get(key);
-
-            if (mesh == null && state == null && buildsThisFrame < MAX_BUILDS_PER_FRAME) {
-                meshStates.put(key, MeshState.BUILDING);
-                final int fcx = cx, fcz = cz;
-                mesherPool.submit(() -> {
-                    PendingMesh built = buildChunkMesh(fcx, fcz, chunk, false);
-                    pendingUpdates.add(built);
-                    meshStates.put(built.key, MeshState.READY);
-                });
+            MeshSlot slot = meshSlots.get(key);
+
+            if (mesh == null && slot == null && buildsThisFrame < MAX_BUILDS_PER_FRAME) {
+                slot = new MeshSlot();
+                meshSlots.put(key, slot);
+                slot.requested = ++lastMeshVersion;
+                submitBuild(slot, cx, cz, chunk, false);
                 buildsThisFrame++;
             }
 
@@ -461,14 +510,25 @@ public class Renderer {
 
 
     public void invalidateChunk(int cx, int cz) {
-        long key = pack(cx, cz);
-        meshStates.put(key, MeshState.BUILDING);        
         Chunk chunk = world.getChunkIfLoaded(cx, cz);
         if (chunk == null) return;
+        long key = pack(cx, cz);
+        MeshSlot slot = meshSlots.get(key);
+        if (slot == null) {
+            slot = new MeshSlot();
+            meshSlots.put(key, slot);
+        }
+        slot.requested = ++lastMeshVersion;
+        // A build already underway is followed by one more once it lands.
+        if (slot.building < 0) submitBuild(slot, cx, cz, chunk, true);
+    }
+
+    private void submitBuild(MeshSlot slot, int cx, int cz, Chunk chunk, boolean computeLightingImmediately) {
+        final int version = slot.requested;
+        slot.building = version;
         mesherPool.submit(() -> {
-            PendingMesh built = buildChunkMesh(cx, cz, chunk, true);
+            PendingMesh built = buildChunkMesh(cx, cz, version, chunk, computeLightingImmediately);
             pendingUpdates.add(built);
-            meshStates.put(built.key, MeshState.READY);
         });
     }
     
@@ -489,34 +549,53 @@ public class Renderer {
     }
 
     public void invalidateBlock(int x, int y, int z) {
-        int chunkX = Math.floorDiv(x, Chunk.SIZE);
-        int chunkZ = Math.floorDiv(z, Chunk.SIZE);
-
-        invalidateChunk(chunkX, chunkZ);
+        markBlockStale(x, z);
+        flushStaleChunks();
+    }
 
+    // Queues the chunk holding the block, plus the neighbours whose faces or AO touch it.
+    private void markBlockStale(int x, int z) {
         int lx = Math.floorMod(x, Chunk.SIZE);
         int lz = Math.floorMod(z, Chunk.SIZE);
+        int borders = 0;
+        if (lx == 0)              borders |= BlockChangeFeed.BORDER_WEST;
+        if (lx == Chunk.SIZE - 1) borders |= BlockChangeFeed.BORDER_EAST;
+        if (lz == 0)              borders |= BlockChangeFeed.BORDER_NORTH;
+        if (lz == Chunk.SIZE - 1) borders |= BlockChangeFeed.BORDER_SOUTH;
+        markChunkStale(Math.floorDiv(x, Chunk.SIZE), Math.floorDiv(z, Chunk.SIZE), borders);
+    }
 
-        boolean north = (lz == 0);
-        boolean east  = (lx == Chunk.SIZE - 1);
-        boolean south = (lz == Chunk.SIZE - 1);
-        boolean west  = (lx == 0);
+    private void markChunkStale(int chunkX, int chunkZ, int borders) {
+        staleChunks.add(pack(chunkX, chunkZ));
 
-        if (west)  invalidateChunk(chunkX - 1, chunkZ);
-        if (east)  invalidateChunk(chunkX + 1, chunkZ);
-        if (north) invalidateChunk(chunkX,     chunkZ - 1);
-        if (south) invalidateChunk(chunkX,     chunkZ + 1);
+        boolean west  = (borders & BlockChangeFeed.BORDER_WEST) != 0;
+        boolean east  = (borders & BlockChangeFeed.BORDER_EAST) != 0;
+        boolean north = (borders & BlockChangeFeed.BORDER_NORTH) != 0;
+        boolean south = (borders & BlockChangeFeed.BORDER_SOUTH) != 0;
 
-        if (west  && north) invalidateChunk(chunkX - 1, chunkZ - 1);
-        if (west  && south) invalidateChunk(chunkX - 1, chunkZ + 1);
-        if (east  && north) invalidateChunk(chunkX + 1, chunkZ - 1);
-        if (east  && south) invalidateChunk(chunkX + 1, chunkZ + 1);
+        if (west)  staleChunks.add(pack(chunkX - 1, chunkZ));
+        if (east)  staleChunks.add(pack(chunkX + 1, chunkZ));
+        if (north) staleChunks.add(pack(chunkX,     chunkZ - 1));
+        if (south) staleChunks.add(pack(chunkX,     chunkZ + 1));
+
+        if (west  && north) staleChunks.add(pack(chunkX - 1, chunkZ - 1));
+        if (west  && south) staleChunks.add(pack(chunkX - 1, chunkZ + 1));
+        if (east  && north) staleChunks.add(pack(chunkX + 1, chunkZ - 1));
+        if (east  && south) staleChunks.add(pack(chunkX + 1, chunkZ + 1));
+    }
+
+    private void flushStaleChunks() {
+        if (staleChunks.isEmpty()) return;
+        for (long key : staleChunks) {
+            invalidateChunk((int) (key >> 32), (int) key);
+        }
+        staleChunks.clear();
     }
 
     public void clearAllMeshes() {
         for (ChunkMesh m : meshCache.values()) m.delete();
         meshCache.clear();
-        meshStates.clear();
+        meshSlots.clear();
         pendingUpdates.clear();
     }
 
@@ -548,7 +627,7 @@ public class Renderer {
         mesherPool.shutdownNow();
     }
 
-    private PendingMesh buildChunkMesh(int cx, int cz, Chunk chunk, boolean computeLightingImmediately) {
+    private PendingMesh buildChunkMesh(int cx, int cz, int version, Chunk chunk, boolean computeLightingImmediately) {
         Map<Texture, FaceBatch> opaque = new HashMap<>(64);
         Map<Texture, FaceBatch> trans  = new HashMap<>(16);
 
@@ -618,7 +697,7 @@ public class Renderer {
             }
         }
 
-        return new PendingMesh(pack(cx, cz), cx, cz, perOpaque, perTrans, computeLightingImmediately, opaqueLighting, translucentLighting);
+        return new PendingMesh(pack(cx, cz), cx, cz, version, perOpaque, perTrans, computeLightingImmediately, opaqueLighting, translucentLighting);
     }
 
     private PendingLightingUpdate buildLightingUpdate(int cx, int cz, Chunk chunk) {
@@ -886,11 +965,12 @@ public class Renderer {
         int[] nrm = FaceDirection.get(face);
         int gx = (int) wx + nrm[0], gy = (int) wy + nrm[1], gz = (int) wz + nrm[2];
 
+        WorldCursor cursor = aoCursor.get();
         float[] ao4 = new float[4];
-        ao4[0] = FaceRenderer.cornerAO(world, gx, gy, gz, face, 0);
-        ao4[1] = FaceRenderer.cornerAO(world, gx, gy, gz, face, 1);
-        ao4[2] = FaceRenderer.cornerAO(world, gx, gy, gz, face, 2);
-        ao4[3] = FaceRenderer.cornerAO(world, gx, gy, gz, face, 3);
+        ao4[0] = FaceRenderer.cornerAO(cursor, gx, gy, gz, face, 0);
+        ao4[1] = FaceRenderer.cornerAO(cursor, gx, gy, gz, face, 1);
+        ao4[2] = FaceRenderer.cornerAO(cursor, gx, gy, gz, face, 2);
+        ao4[3] = FaceRenderer.cornerAO(cursor, gx, gy, gz, face, 3);
 
         fb.addFaceWithAO(wx, wy, wz, verts, ao4);
     }
@@ -913,11 +993,12 @@ public class Renderer {
         int gy = (int) wy + nrm[1];
         int gz = (int) wz + nrm[2];
 
+        WorldCursor cursor = aoCursor.get();
         float[] ao4 = new float[4];
-        ao4[0] = FaceRenderer.cornerAO(world, gx, gy, gz, face, 0);
-        ao4[1] = FaceRenderer.cornerAO(world, gx, gy, gz, face, 1);
-        ao4[2] = FaceRenderer.cornerAO(world, gx, gy, gz, face, 2);
-        ao4[3] = FaceRenderer.cornerAO(world, gx, gy, gz, face, 3);
+        ao4[0] = FaceRenderer.cornerAO(cursor, gx, gy, gz, face, 0);
+        ao4[1] = FaceRenderer.cornerAO(cursor, gx, gy, gz, face, 1);
+        ao4[2] = FaceRenderer.cornerAO(cursor, gx, gy, gz, face, 2);
+        ao4[3] = FaceRenderer.cornerAO(cursor, gx, gy, gz, face, 3);
 
         fb.addFaceWithAO(wx, wy, wz, verts, ao4);
     }
@@ -1066,10 +1147,18 @@ public class Renderer {
     private void drawHoverOutline(InputHandler.Hit h) {
         float x0 = h.x, x1 = h.x + 1f, y0 = h.y, y1 = h.y + 1f, z0 = h.z, z1 = h.z + 1f;
 
+        // Outline the bounds of the block's collision shape, e.g. the lower half of a bottom slab.
         AbstractBlock block = world.getBlock(h.x, h.y, h.z);
-        if (block != null && block.isSlab()) {
-            if (block.isSlabTop()) { y0 = h.y + 0.5f; y1 = h.y + 1.0f; }
-            else if (block.isSlabBottom()) { y0 = h.y; y1 = h.y + 0.5f; }
+        float[] shape = block != null ? BlockShapes.get(block.getState()) : BlockShapes.EMPTY;
+        if (shape.length > 0) {
+            float bx0 = 1f, by0 = 1f, bz0 = 1f, bx1 = 0f, by1 = 0f, bz1 = 0f;
+            for (int i = 0; i < shape.length; i += BlockShapes.FLOATS_PER_BOX) {
+                bx0 = Math.min(bx0, shape[i]);     by0 = Math.min(by0, shape[i + 1]); bz0 = Math.min(bz0, shape[i + 2]);
+                bx1 = Math.max(bx1, shape[i + 3]); by1 = Math.max(by1, shape[i + 4]); bz1 = Math.max(bz1, shape[i + 5]);
+            }
+            x0 = h.x + bx0; x1 = h.x + bx1;
+            y0 = h.y + by0; y1 = h.y + by1;
+            z0 = h.z + bz0; z1 = h.z + bz1;
         }
 
         final float EPS = 0.002f;
@@ -1136,14 +1225,13 @@ public class Renderer {
 
     private void removeMesh(int centerCx, int centerCz, int radius) {
         int r2 = radius;
-        meshCache.entrySet().removeIf(e -> {
-            long key = e.getKey();
+        meshCache.removeIf((key, mesh) -> {
             int cx = (int) (key >> 32);
             int cz = (int) (key & 0xFFFFFFFFL);
             boolean far = Math.abs(cx - centerCx) > r2 || Math.abs(cz - centerCz) > r2;
             if (far) {
-                e.getValue().delete();
-                meshStates.remove(key);
+                mesh.delete();
+                meshSlots.remove(key);
                 pendingUpdates.removeIf(pm -> pm.key == key);
             }
             return far;
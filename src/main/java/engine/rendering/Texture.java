@@ -15,7 +15,30 @@ public class Texture {
     protected int width;
     protected int height;
 
+    private final String filepath;
+    private boolean loaded = false;
+
+    /**
+     * The image is read and uploaded on first use rather than here, so block
+     * types can be initialised by headless tools that have no GL context.
+     */
     public Texture(String filepath) {
+        this.filepath = filepath;
+    }
+
+    /** Loads and uploads the image if that hasn't happened yet. Must run on the GL thread. */
+    protected final void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        load();
+        onLoaded();
+    }
+
+    /** Called once the image size is known. */
+    protected void onLoaded() {
+    }
+
+    private void load() {
         ByteBuffer image = null;
         try (MemoryStack stack = MemoryStack.stackPush()) {
             IntBuffer w = stack.mallocInt(1);
@@ -92,10 +115,12 @@ public class Texture {
     }
 
     public void bind() {
+    	ensureLoaded();
     	GL30.glBindTexture(GL30.GL_TEXTURE_2D, id);
     }
 
     public void cleanup() {
+    	if (!loaded) return;
     	GL30.glDeleteTextures(id);
     }
 }
\ No newline at end of file
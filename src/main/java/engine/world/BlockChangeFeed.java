@@ -0,0 +1,126 @@
+package engine.world;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records every block edit made on a loaded chunk as (position, old state,
+ * new state), for subsystems that want to react to edits in bulk once per
+ * tick instead of being called for each one. Edits applied through a
+ * {@link WorldEdit} are recorded as one entry per section they changed.
+ * <p>
+ * The feed is a fixed-size ring that any number of threads write to without
+ * locking. Each reader owns a {@link Subscription} with its own position and
+ * drains whatever was written since its last drain. Writers never wait for
+ * readers: a reader that falls more than a full ring behind loses the oldest
+ * records and is told so, and should then treat everything as changed.
+ */
+public final class BlockChangeFeed {
+    /** Bits of {@link Sink#sectionChanged}'s {@code borders}: which chunk edges the changed blocks touch. */
+    public static final int BORDER_WEST = 1, BORDER_EAST = 2, BORDER_NORTH = 4, BORDER_SOUTH = 8;
+
+    /** Receives drained records, oldest first. */
+    public interface Sink {
+        void blockChanged(int x, int y, int z, int oldState, int newState);
+
+        /** Blocks in the 16^3 section at the given section coordinates changed, and aren't listed one by one. */
+        void sectionChanged(int sectionX, int sectionY, int sectionZ, int borders);
+    }
+
+    // Stored in oldStates to mark a section record; real states are never negative.
+    private static final int SECTION_RECORD = -1;
+
+    private final int mask;
+    private final int[] xs, ys, zs, oldStates, newStates;
+    // Sequence number of the record each slot holds, or -1; written after the slot's fields.
+    private final AtomicLongArray published;
+    private final AtomicLong next = new AtomicLong();
+
+    public BlockChangeFeed(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.xs = new int[capacity];
+        this.ys = new int[capacity];
+        this.zs = new int[capacity];
+        this.oldStates = new int[capacity];
+        this.newStates = new int[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) published.set(i, -1L);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public void publish(int x, int y, int z, int oldState, int newState) {
+        long seq = next.getAndIncrement();
+        int slot = (int) seq & mask;
+        // Mark the slot as being rewritten so a lagging reader can't mistake it for the old record.
+        published.set(slot, -1L);
+        // Keep the field writes below from becoming visible before that mark.
+        VarHandle.releaseFence();
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        oldStates[slot] = oldState;
+        newStates[slot] = newState;
+        published.set(slot, seq);
+    }
+
+    public void publishSection(int sectionX, int sectionY, int sectionZ, int borders) {
+        publish(sectionX, sectionY, sectionZ, SECTION_RECORD, borders);
+    }
+
+    /** Starts reading from the next record written. */
+    public Subscription subscribe() {
+        return new Subscription(next.get());
+    }
+
+    public final class Subscription {
+        private long position;
+
+        private Subscription(long position) {
+            this.position = position;
+        }
+
+        /**
+         * Hands every record written since the last drain to the sink. Returns
+         * false if records were lost because this subscription fell too far
+         * behind; the ones still available are delivered either way.
+         */
+        public boolean drain(Sink sink) {
+            boolean complete = true;
+            long end = next.get();
+            if (end - position > capacity()) {
+                position = end - capacity();
+                complete = false;
+            }
+            while (position < end) {
+                int slot = (int) position & mask;
+                long seq = published.get(slot);
+                if (seq < position) break;  // claimed but not written yet, pick it up next drain
+                if (seq > position) {       // overwritten by a newer lap
+                    complete = false;
+                    position++;
+                    continue;
+                }
+                int x = xs[slot], y = ys[slot], z = zs[slot];
+                int oldState = oldStates[slot], newState = newStates[slot];
+                // Keep the field reads above from happening after the re-check.
+                VarHandle.acquireFence();
+                if (published.get(slot) != position) {
+                    complete = false;
+                    position++;
+                    continue;
+                }
+                if (oldState == SECTION_RECORD) sink.sectionChanged(x, y, z, newState);
+                else sink.blockChanged(x, y, z, oldState, newState);
+                position++;
+            }
+            return complete;
+        }
+    }
+}
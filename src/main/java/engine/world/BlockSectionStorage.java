@@ -7,6 +7,10 @@ final class BlockSectionStorage {
     private static final int MIN_BITS = 4;
     private static final int DIRECT_BITS = 32;
 
+    // Shared all-zero backing array for sections that only hold palette index 0.
+    // Never written to; writeIndex copies it on first write.
+    private static final long[] UNIFORM_DATA = new long[COUNT / (64 / MIN_BITS)];
+
     private int bitsPerBlock;
     private boolean direct;
     private long[] data;
@@ -21,13 +25,73 @@ final class BlockSectionStorage {
         this.direct = false;
         this.entriesPerLong = Math.max(1, 64 / bitsPerBlock);
         this.valueMask = (bitsPerBlock == 64) ? ~0L : ((1L << bitsPerBlock) - 1L);
-        int longsNeeded = (int)Math.ceil((double)COUNT / entriesPerLong);
-        this.data = new long[longsNeeded];
+        this.data = UNIFORM_DATA;
 
         palette.put(0, 0);
         inverse.add(0);
     }
+
+    static BlockSectionStorage uniform(int id) {
+        BlockSectionStorage s = new BlockSectionStorage();
+        if (id != 0) {
+            s.palette.clear();
+            s.inverse.clear();
+            s.palette.put(id, 0);
+            s.inverse.add(id);
+        }
+        return s;
+    }
     
+    /**
+     * Builds a section from all {@link #COUNT} ids at once, in
+     * {@code (y * 16 + z) * 16 + x} order. The palette is collected in one
+     * pass and the packed words are assembled in another, instead of paying a
+     * palette lookup and a read-modify-write per block.
+     */
+    static BlockSectionStorage fromIds(int[] ids) {
+        int[] pal = new int[16];
+        int palSize = 0;
+        int last = ids[0], lastIndex = -1;
+        BlockSectionStorage s = new BlockSectionStorage(true);
+
+        int[] indices = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            int id = ids[i];
+            if (id < 0) throw new IllegalArgumentException("Negative block ID: " + id);
+            if (id != last || lastIndex < 0) {
+                Integer got = s.palette.get(id);
+                if (got == null) {
+                    got = palSize;
+                    if (palSize == pal.length) pal = Arrays.copyOf(pal, palSize * 2);
+                    pal[palSize++] = id;
+                    s.palette.put(id, got);
+                }
+                last = id;
+                lastIndex = got;
+            }
+            indices[i] = lastIndex;
+        }
+
+        if (palSize == 1) return uniform(pal[0]);
+
+        s.inverse.ensureCapacity(palSize);
+        for (int i = 0; i < palSize; i++) s.inverse.add(pal[i]);
+        s.bitsPerBlock = Math.max(MIN_BITS, ceilLog2(palSize));
+        s.recalcPacking();
+
+        final int perLong = s.entriesPerLong, bits = s.bitsPerBlock;
+        long[] data = new long[(COUNT + perLong - 1) / perLong];
+        for (int w = 0, i = 0; w < data.length; w++) {
+            long word = 0L;
+            for (int k = 0; k < perLong && i < COUNT; k++, i++) {
+                word |= ((long) indices[i]) << (k * bits);
+            }
+            data[w] = word;
+        }
+        s.data = data;
+        return s;
+    }
+
     BlockSectionStorage(boolean skipInit) {
         this.bitsPerBlock = 0;
         this.direct = false;
@@ -99,7 +163,11 @@ final class BlockSectionStorage {
                 palette.put(id, 0);
                 palette.put(id0, got);
             }
-            Arrays.fill(data, 0L);
+            if (bitsPerBlock == MIN_BITS) {
+                data = UNIFORM_DATA;
+            } else {
+                Arrays.fill(data, 0L);
+            }
         } else {
             int entry = id;
             for (int i = 0; i < COUNT; i++) writeIndex(i, entry);
@@ -154,6 +222,17 @@ final class BlockSectionStorage {
     }
 
 
+    /** Returns the single id held by every block of this section, or -1 if it holds more than one. */
+    int uniformId() {
+        if (direct) return -1;
+        if (data != UNIFORM_DATA) {
+            for (long word : data) {
+                if (word != 0L) return -1;
+            }
+        }
+        return inverse.get(0);
+    }
+
     private void recalcPacking() {
         this.entriesPerLong = Math.max(1, 64 / bitsPerBlock);
         this.valueMask = (bitsPerBlock == 64) ? ~0L : ((1L << bitsPerBlock) - 1L);
@@ -214,6 +293,7 @@ final class BlockSectionStorage {
     }
 
     private void writeIndex(int i, int value) {
+        if (data == UNIFORM_DATA) data = new long[UNIFORM_DATA.length];
         int word = i / entriesPerLong;
         int offset = (i % entriesPerLong) * bitsPerBlock;
         long mask = ~(valueMask << offset);
@@ -7,7 +7,7 @@ public class Chunk {
     public static final int HEIGHT = 512;
 
     private final int chunkX, chunkZ;
-    private static final int SECTION_COUNT = (HEIGHT + SIZE - 1) / SIZE;
+    public static final int SECTION_COUNT = (HEIGHT + SIZE - 1) / SIZE;
     
     private final byte[][][] skyLight = new byte[SIZE][HEIGHT][SIZE];
     private final byte[][][] blockLight = new byte[SIZE][HEIGHT][SIZE];
@@ -15,6 +15,8 @@ public class Chunk {
     private final BlockSectionStorage[] sections = new BlockSectionStorage[SECTION_COUNT];
     
     private transient boolean dirty = false;
+    // Set once the chunk is handed to a World; edits made while generating aren't recorded.
+    private transient BlockChangeFeed changeFeed;
 
     public Chunk(int chunkX, int chunkZ) {
         this.chunkX = chunkX;
@@ -26,6 +28,8 @@ public class Chunk {
     public void markDirty() { dirty = true; }
     public void clearDirty() { dirty = false; }
 
+    void setChangeFeed(BlockChangeFeed changeFeed) { this.changeFeed = changeFeed; }
+
     private static void checkBounds(int x, int y, int z) {
         if (x < 0 || x >= SIZE || z < 0 || z >= SIZE || y < 0 || y >= HEIGHT) {
             throw new IndexOutOfBoundsException("x,y,z out of range: " + x + "," + y + "," + z);
@@ -46,9 +50,7 @@ public class Chunk {
 
     public void setBlock(int x, int y, int z, AbstractBlock block) {
         checkBounds(x, y, z);
-        int ly = y % SIZE;
-        sec(y).setId(x, ly, z, block.getState());
-        dirty = true;
+        setState(x, y, z, block.getState());
     }
 
     public void fillChunk(AbstractBlock block) {
@@ -85,12 +87,76 @@ public class Chunk {
     private BlockSectionStorage sectionFor(int y) {
         return sections[y >>> 4];
     }
+
+    BlockSectionStorage section(int index) {
+        return sections[index];
+    }
+
+    /**
+     * Replaces a whole 16-block-high section with the given states, indexed
+     * {@code (ly * SIZE + z) * SIZE + x}. Meant for chunks that are still being
+     * built: readers holding on to the old section won't see the change.
+     */
+    public void setSection(int sectionIndex, int[] states) {
+        if (states.length != BlockSectionStorage.COUNT) {
+            throw new IllegalArgumentException("Expected " + BlockSectionStorage.COUNT + " states, got " + states.length);
+        }
+        sections[sectionIndex] = BlockSectionStorage.fromIds(states);
+        dirty = true;
+    }
     
+    /**
+     * Applies a {@link WorldEdit}'s pending states to one section. The
+     * {@code count} section indices in {@code touched} (ordered like
+     * {@link #setSection}) say which blocks to set, and {@code states} holds
+     * state + 1 at those indices. Returns the {@link BlockChangeFeed} border
+     * bits of the blocks that changed, or -1 if none did. Nothing is recorded
+     * in the change feed; the caller does that.
+     * <p>
+     * When all {@link BlockSectionStorage#COUNT} blocks are set and any of
+     * them changed, the section object is replaced rather than written to, so
+     * the caller must also bump the world's chunk epoch for cached sections.
+     */
+    int applySectionEdit(int sectionIndex, int[] states, short[] touched, int count) {
+        BlockSectionStorage section = sections[sectionIndex];
+        boolean whole = count == BlockSectionStorage.COUNT;
+        int borders = -1;
+        for (int n = 0; n < count; n++) {
+            int i = touched[n];
+            int state = states[i] - 1;
+            int x = i & 15, z = (i >> 4) & 15, ly = i >> 8;
+            if (section.getId(x, ly, z) == state) continue;
+            if (!whole) section.setId(x, ly, z, state);
+            if (borders < 0) borders = 0;
+            if (x == 0)        borders |= BlockChangeFeed.BORDER_WEST;
+            if (x == SIZE - 1) borders |= BlockChangeFeed.BORDER_EAST;
+            if (z == 0)        borders |= BlockChangeFeed.BORDER_NORTH;
+            if (z == SIZE - 1) borders |= BlockChangeFeed.BORDER_SOUTH;
+        }
+        if (borders < 0) return -1;
+        if (whole) {
+            // A section that is rewritten whole is packed in one pass instead.
+            int[] ids = new int[BlockSectionStorage.COUNT];
+            for (int i = 0; i < ids.length; i++) ids[i] = states[i] - 1;
+            sections[sectionIndex] = BlockSectionStorage.fromIds(ids);
+        }
+        dirty = true;
+        return borders;
+    }
+
     public int getState(int x, int y, int z) {
         return sectionFor(y).getId(x, y & 15, z);
     }
     public void setState(int x, int y, int z, int state) {
-        sectionFor(y).setId(x, y & 15, z, state);
+        BlockSectionStorage section = sectionFor(y);
+        if (changeFeed == null) {
+            section.setId(x, y & 15, z, state);
+        } else {
+            int old = section.getId(x, y & 15, z);
+            if (old == state) return;
+            section.setId(x, y & 15, z, state);
+            changeFeed.publish(chunkX * SIZE + x, y, chunkZ * SIZE + z, old, state);
+        }
         dirty = true;
     }
     
@@ -142,19 +208,50 @@ public class Chunk {
         }
     }
     
+    // v1 blobs start with the section count; v2 blobs start with this negative tag instead.
+    private static final int FORMAT_V2 = -2;
+
+    private static final byte SECTION_SINGLE = 0;
+    private static final byte SECTION_PACKED = 1;
+
+    /**
+     * Writes the chunk in format v2: a presence bitmask over all sections, where
+     * sections that are entirely air are omitted and sections holding a single
+     * state are stored as just that state.
+     */
     public void write(java.io.DataOutput out) throws java.io.IOException {
+        long present = 0L;
+        int[] uniform = new int[SECTION_COUNT];
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            uniform[i] = sections[i].uniformId();
+            if (uniform[i] != 0) present |= 1L << i;
+        }
+
+        out.writeInt(FORMAT_V2);
         out.writeInt(SECTION_COUNT);
+        out.writeLong(present);
         for (int i = 0; i < SECTION_COUNT; i++) {
-            byte[] secBytes = sections[i].serialize();
-            out.writeInt(secBytes.length);
-            out.write(secBytes);
+            if ((present & (1L << i)) == 0) continue;
+            if (uniform[i] > 0) {
+                out.writeByte(SECTION_SINGLE);
+                out.writeInt(uniform[i]);
+            } else {
+                byte[] secBytes = sections[i].serialize();
+                out.writeByte(SECTION_PACKED);
+                out.writeInt(secBytes.length);
+                out.write(secBytes);
+            }
         }
     }
 
     public void read(java.io.DataInput in) throws java.io.IOException {
-        int count = in.readInt();
-        if (count != SECTION_COUNT) {
-            throw new IOException("Mismatched section count: " + count + " (expected " + SECTION_COUNT + ")");
+        int head = in.readInt();
+        if (head == FORMAT_V2) {
+            readV2(in);
+            return;
+        }
+        if (head != SECTION_COUNT) {
+            throw new IOException("Mismatched section count: " + head + " (expected " + SECTION_COUNT + ")");
         }
         for (int i = 0; i < SECTION_COUNT; i++) {
             int len = in.readInt();
@@ -163,4 +260,29 @@ public class Chunk {
             sections[i] = BlockSectionStorage.deserialize(secBytes);
         }
     }
+
+    private void readV2(java.io.DataInput in) throws java.io.IOException {
+        int count = in.readInt();
+        if (count != SECTION_COUNT) {
+            throw new IOException("Mismatched section count: " + count + " (expected " + SECTION_COUNT + ")");
+        }
+        long present = in.readLong();
+        for (int i = 0; i < SECTION_COUNT; i++) {
+            if ((present & (1L << i)) == 0) {
+                sections[i] = new BlockSectionStorage();
+                continue;
+            }
+            byte kind = in.readByte();
+            if (kind == SECTION_SINGLE) {
+                sections[i] = BlockSectionStorage.uniform(in.readInt());
+            } else if (kind == SECTION_PACKED) {
+                int len = in.readInt();
+                byte[] secBytes = new byte[len];
+                in.readFully(secBytes);
+                sections[i] = BlockSectionStorage.deserialize(secBytes);
+            } else {
+                throw new IOException("Unknown section kind " + kind + " in section " + i);
+            }
+        }
+    }
 }
@@ -0,0 +1,160 @@
+package engine.world;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads or generates chunks on a pool of worker threads, nearest-first.
+ * Each chunk position has at most one in-flight task; asking for it again,
+ * asynchronously or synchronously, joins that task instead of starting
+ * another. Disk reads and terrain generation run outside of any map lock and
+ * the finished chunk is only published into the world afterwards.
+ */
+final class ChunkLoader {
+    private final World world;
+    private final ThreadPoolExecutor pool;
+    private final Map<Long, LoadTask> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, LoadTask> preparing = new ConcurrentHashMap<>();
+
+    // Preparation only runs once every queued load has been picked up.
+    private static final int PREPARE_PRIORITY = 1 << 24;
+    private final AtomicLong sequence = new AtomicLong();
+
+    ChunkLoader(World world, int threads) {
+        this.world = world;
+        AtomicInteger threadId = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "chunk-loader-" + threadId.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    private final class LoadTask extends FutureTask<Chunk> implements Comparable<LoadTask> {
+        final long key;
+        final int cx, cz;
+        final int priority;
+        final long seq;
+
+        LoadTask(long key, int cx, int cz, int priority) {
+            this(key, cx, cz, priority, () -> {
+                Chunk chunk = world.loadOrGenerate(cx, cz);
+                Chunk raced = world.getChunks().putIfAbsent(key, chunk);
+                if (raced != null) return raced;
+                world.onChunkLoaded(key);
+                return chunk;
+            });
+        }
+
+        LoadTask(long key, int cx, int cz, int priority, Callable<Chunk> work) {
+            super(work);
+            this.key = key;
+            this.cx = cx;
+            this.cz = cz;
+            this.priority = priority;
+            this.seq = sequence.incrementAndGet();
+        }
+
+        @Override
+        protected void done() {
+            inFlight.remove(key, this);
+            preparing.remove(key, this);
+        }
+
+        @Override
+        public int compareTo(LoadTask o) {
+            if (priority != o.priority) return Integer.compare(priority, o.priority);
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    /**
+     * Queues a load of the chunk unless it is already loaded or in flight.
+     * Lower priorities run first; callers pass the squared distance to the
+     * camera.
+     */
+    void request(long key, int cx, int cz, int priority) {
+        if (world.getChunks().containsKey(key) || inFlight.containsKey(key)) return;
+        LoadTask task = new LoadTask(key, cx, cz, priority);
+        if (inFlight.putIfAbsent(key, task) == null) {
+            pool.execute(task);
+        }
+    }
+
+    /**
+     * Queues the early generation stages of a chunk outside the load radius,
+     * behind every pending load.
+     */
+    void prepare(long key, int cx, int cz, int priority) {
+        if (world.getChunks().containsKey(key) || preparing.containsKey(key)) return;
+        LoadTask task = new LoadTask(key, cx, cz, PREPARE_PRIORITY + priority, () -> {
+            world.prepareChunk(cx, cz);
+            return null;
+        });
+        if (preparing.putIfAbsent(key, task) == null) {
+            pool.execute(task);
+        }
+    }
+
+    /**
+     * Returns the chunk, loading it on the calling thread if no worker has
+     * picked it up yet, or waiting for the worker that has.
+     */
+    Chunk load(long key, int cx, int cz) {
+        while (true) {
+            Chunk chunk = world.getChunks().get(key);
+            if (chunk != null) return chunk;
+
+            LoadTask task = inFlight.computeIfAbsent(key, k -> new LoadTask(k, cx, cz, Integer.MIN_VALUE));
+            pool.remove(task);
+            task.run();
+            try {
+                return task.get();
+            } catch (CancellationException e) {
+                // Cancelled by a camera move while we waited; start over.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return world.getChunks().get(key);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to load chunk " + cx + "," + cz, e.getCause());
+            }
+        }
+    }
+
+    /** Drops queued preparations that have fallen outside the given square radius. */
+    void cancelPreparationsOutside(int centerCx, int centerCz, int radius) {
+        Iterator<LoadTask> it = preparing.values().iterator();
+        while (it.hasNext()) {
+            LoadTask task = it.next();
+            if (Math.abs(task.cx - centerCx) > radius || Math.abs(task.cz - centerCz) > radius) {
+                if (pool.remove(task)) {
+                    task.cancel(false);
+                }
+            }
+        }
+    }
+
+    /** Drops the queued load of a single chunk, if it has not started yet. */
+    void cancel(long key) {
+        LoadTask task = inFlight.get(key);
+        if (task != null && pool.remove(task)) {
+            task.cancel(false);
+        }
+    }
+
+    int pendingCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,63 @@
+package engine.world;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drives chunk loading and unloading from the camera position. A pass only
+ * runs when the camera enters a new chunk or the render distance changes, and
+ * at most one pass is ever queued: updates that arrive while one is pending
+ * just move its target, so a slow pass never piles up stale work behind it.
+ */
+final class ChunkStreamer {
+    private final World world;
+    private final ExecutorService pool = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "chunk-streamer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicReference<Target> target = new AtomicReference<>();
+    private final AtomicBoolean passQueued = new AtomicBoolean(false);
+    private volatile Target processed;
+
+    private static final class Target {
+        final int cx, cz, radius;
+
+        Target(int cx, int cz, int radius) {
+            this.cx = cx;
+            this.cz = cz;
+            this.radius = radius;
+        }
+
+        boolean matches(int cx, int cz, int radius) {
+            return this.cx == cx && this.cz == cz && this.radius == radius;
+        }
+    }
+
+    ChunkStreamer(World world) {
+        this.world = world;
+    }
+
+    void update(int cameraCx, int cameraCz, int radius) {
+        Target current = target.get();
+        if (current != null && current.matches(cameraCx, cameraCz, radius)) return;
+
+        target.set(new Target(cameraCx, cameraCz, radius));
+        if (passQueued.compareAndSet(false, true)) {
+            pool.execute(this::runPass);
+        }
+    }
+
+    private void runPass() {
+        // Clear first so a target change made during this pass queues another one.
+        passQueued.set(false);
+        Target t = target.get();
+        if (t == null || t == processed) return;
+
+        world.updatePlayerTickets(t.cx, t.cz, t.radius);
+        processed = t;
+    }
+}
@@ -0,0 +1,152 @@
+package engine.world;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reference-counted load tickets per chunk. The player holds one ticket over
+ * a square around the camera chunk; gameplay code can add its own for spawn
+ * areas or forced chunks. A chunk stays loaded while any ticket covers it.
+ * <p>
+ * Moving the player ticket only touches the rows that actually enter or leave
+ * the square, so standing still costs nothing and crossing a chunk border
+ * costs one ring instead of the whole area.
+ */
+final class ChunkTickets {
+    // The player keeps one extra ring loaded past what it asks for so walking
+    // back and forth over a chunk border doesn't unload and reload that ring.
+    private static final int KEEP_MARGIN = 1;
+    // Rings past the render radius whose terrain is generated ahead of time,
+    // without being loaded, so walking towards them only has to finish them.
+    static final int PREPARE_MARGIN = 2;
+
+    private interface CellVisitor {
+        void visit(int cx, int cz);
+    }
+
+    private final World world;
+    private final Map<Long, Integer> counts = new HashMap<>();
+    private final Set<Long> untracked = ConcurrentHashMap.newKeySet();
+
+    private boolean hasPlayer = false;
+    private int playerCx, playerCz, playerRadius;
+
+    ChunkTickets(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Moves the player ticket, queues loads for chunks entering its radius and
+     * returns the chunks that no ticket covers any more.
+     */
+    synchronized List<Long> movePlayer(int cx, int cz, int radius) {
+        List<Long> released = new ArrayList<>();
+        if (hasPlayer && cx == playerCx && cz == playerCz && radius == playerRadius) return released;
+
+        int keep = radius + KEEP_MARGIN;
+        if (hasPlayer) {
+            int oldKeep = playerRadius + KEEP_MARGIN;
+            forEachOutside(cx, cz, keep, playerCx, playerCz, oldKeep, this::acquire);
+            forEachOutside(cx, cz, radius, playerCx, playerCz, playerRadius,
+                    (x, z) -> world.requestChunk(x, z, cx, cz));
+            forEachOutside(playerCx, playerCz, oldKeep, cx, cz, keep, (x, z) -> release(x, z, released));
+            forEachOutside(cx, cz, radius + PREPARE_MARGIN, playerCx, playerCz, playerRadius + PREPARE_MARGIN,
+                    (x, z) -> prepareIfOutside(x, z, cx, cz, radius));
+        } else {
+            forEachIn(cx, cz, keep, this::acquire);
+            forEachIn(cx, cz, radius, (x, z) -> world.requestChunk(x, z, cx, cz));
+            forEachOutside(cx, cz, radius + PREPARE_MARGIN, cx, cz, radius,
+                    (x, z) -> world.requestPreparation(x, z, cx, cz));
+        }
+
+        hasPlayer = true;
+        playerCx = cx;
+        playerCz = cz;
+        playerRadius = radius;
+        return released;
+    }
+
+    private void prepareIfOutside(int x, int z, int cx, int cz, int radius) {
+        if (Math.abs(x - cx) > radius || Math.abs(z - cz) > radius) {
+            world.requestPreparation(x, z, cx, cz);
+        }
+    }
+
+    synchronized void add(int cx, int cz, int radius) {
+        forEachIn(cx, cz, radius, (x, z) -> {
+            acquire(x, z);
+            world.requestChunk(x, z, cx, cz);
+        });
+    }
+
+    synchronized List<Long> remove(int cx, int cz, int radius) {
+        List<Long> released = new ArrayList<>();
+        forEachIn(cx, cz, radius, (x, z) -> release(x, z, released));
+        return released;
+    }
+
+    synchronized boolean isTicketed(long key) {
+        return counts.containsKey(key);
+    }
+
+    /** Remembers a chunk that was loaded without a ticket so a later sweep can drop it. */
+    void noteLoaded(long key) {
+        if (!isTicketed(key)) untracked.add(key);
+    }
+
+    /** Returns the untracked chunks that still have no ticket, forgetting the rest. */
+    List<Long> sweepUntracked() {
+        List<Long> released = new ArrayList<>();
+        Iterator<Long> it = untracked.iterator();
+        while (it.hasNext()) {
+            long key = it.next();
+            it.remove();
+            if (!isTicketed(key)) released.add(key);
+        }
+        return released;
+    }
+
+    private void acquire(int cx, int cz) {
+        counts.merge(World.getChunkKey(cx, cz), 1, Integer::sum);
+    }
+
+    private void release(int cx, int cz, List<Long> released) {
+        long key = World.getChunkKey(cx, cz);
+        Integer c = counts.get(key);
+        if (c == null) return;
+        if (c <= 1) {
+            counts.remove(key);
+            released.add(key);
+        } else {
+            counts.put(key, c - 1);
+        }
+    }
+
+    private static void forEachIn(int cx, int cz, int r, CellVisitor v) {
+        for (int z = cz - r; z <= cz + r; z++) {
+            for (int x = cx - r; x <= cx + r; x++) {
+                v.visit(x, z);
+            }
+        }
+    }
+
+    /** Visits every cell of square A that is not in square B, row by row. */
+    private static void forEachOutside(int acx, int acz, int ar, int bcx, int bcz, int br, CellVisitor v) {
+        int ax0 = acx - ar, ax1 = acx + ar;
+        int bx0 = bcx - br, bx1 = bcx + br;
+        int bz0 = bcz - br, bz1 = bcz + br;
+        for (int z = acz - ar; z <= acz + ar; z++) {
+            if (z < bz0 || z > bz1) {
+                for (int x = ax0; x <= ax1; x++) v.visit(x, z);
+            } else {
+                for (int x = ax0; x <= Math.min(ax1, bx0 - 1); x++) v.visit(x, z);
+                for (int x = Math.max(ax0, bx1 + 1); x <= ax1; x++) v.visit(x, z);
+            }
+        }
+    }
+}
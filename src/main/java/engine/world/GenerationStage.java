@@ -0,0 +1,45 @@
+package engine.world;
+
+/**
+ * Stages a chunk passes through while it is generated, in order. A stage may
+ * only run on a chunk once every neighbour within its radius has finished the
+ * stage before it, so anything that reads or writes across chunk borders
+ * declares that here rather than reaching into half-built neighbours.
+ */
+public enum GenerationStage {
+    EMPTY(0),
+    /** Noise heightmap and per-column metadata. */
+    HEIGHTMAP(0),
+    /** Bedrock, stone, soil, top blocks and water. */
+    SURFACE(0),
+    /** Decorations that may cross into neighbouring chunks. */
+    FEATURES(1),
+    /** Initial sky light; waits for neighbours so features overhanging the border are in place. */
+    LIGHT(1);
+
+    private final int neighbourRadius;
+
+    GenerationStage(int neighbourRadius) {
+        this.neighbourRadius = neighbourRadius;
+    }
+
+    public int getNeighbourRadius() {
+        return neighbourRadius;
+    }
+
+    public GenerationStage previous() {
+        return values()[ordinal() - 1];
+    }
+
+    public GenerationStage next() {
+        return values()[ordinal() + 1];
+    }
+
+    public boolean isAtLeast(GenerationStage other) {
+        return ordinal() >= other.ordinal();
+    }
+
+    public static GenerationStage last() {
+        return LIGHT;
+    }
+}
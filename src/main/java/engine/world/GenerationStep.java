@@ -0,0 +1,11 @@
+package engine.world;
+
+/**
+ * One unit of work in a {@link GenerationStage}, registered through
+ * {@link World#addGenerationStep}. Steps run on chunk loader threads, possibly
+ * for several chunks at once, and must only touch the given chunk and the
+ * neighbours its stage declares.
+ */
+public interface GenerationStep {
+    void apply(ProtoChunk chunk);
+}
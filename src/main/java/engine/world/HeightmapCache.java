@@ -0,0 +1,198 @@
+package engine.world;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded off-heap cache of generated column data, one 16x16 grid per chunk.
+ * Each column packs its surface height, top block id and beach flag into an
+ * int, so regenerating a chunk whose grid is cached skips the noise entirely
+ * and is just a fill pass.
+ * <p>
+ * The cache is sized in bytes rather than entries: it owns a single direct
+ * buffer carved into fixed slots. Slots are split between a fixed number of
+ * stripes by chunk key, each with its own lock, primitive key index and
+ * CLOCK sweep, so generator threads working on different chunks rarely wait
+ * on each other. One cache belongs to one {@link World}, so the seed is
+ * implied by the owner and entries are keyed by chunk coordinates alone.
+ */
+public final class HeightmapCache {
+    public static final int COLUMNS = Chunk.SIZE * Chunk.SIZE;
+    public static final int ENTRY_BYTES = COLUMNS * 4;
+
+    private static final int HEIGHT_MASK = 0xFFFF;
+    private static final int TOP_SHIFT = 16;
+    private static final int TOP_MASK = 0xFFF;
+    private static final int BEACH_BIT = 1 << 31;
+
+    private static final int STRIPE_BITS = 4;
+
+    /** A contiguous run of slots with its own key index and eviction hand. */
+    private static final class Stripe {
+        final int first, slots;
+        final long[] slotKeys;
+        final byte[] referenced;
+        // Open-addressed key -> slot index, linear probing, -1 where empty.
+        final long[] tableKeys;
+        final int[] tableSlots;
+        final int tableMask;
+        int used = 0;
+        int hand = 0;
+        long hits, misses, evictions;
+
+        Stripe(int first, int slots) {
+            this.first = first;
+            this.slots = slots;
+            this.slotKeys = new long[slots];
+            this.referenced = new byte[slots];
+            int tableSize = Integer.highestOneBit(Math.max(1, slots) * 2) * 2;
+            this.tableKeys = new long[tableSize];
+            this.tableSlots = new int[tableSize];
+            this.tableMask = tableSize - 1;
+            Arrays.fill(tableSlots, -1);
+        }
+
+        int find(long key, long hash) {
+            for (int i = (int) hash & tableMask; ; i = (i + 1) & tableMask) {
+                int slot = tableSlots[i];
+                if (slot < 0) return -1;
+                if (tableKeys[i] == key) return slot;
+            }
+        }
+
+        void insert(long key, long hash, int slot) {
+            int i = (int) hash & tableMask;
+            while (tableSlots[i] >= 0) i = (i + 1) & tableMask;
+            tableKeys[i] = key;
+            tableSlots[i] = slot;
+        }
+
+        void remove(long key) {
+            int i = (int) mix(key) & tableMask;
+            while (tableSlots[i] >= 0 && tableKeys[i] != key) i = (i + 1) & tableMask;
+            if (tableSlots[i] < 0) return;
+            // Shift later entries of the probe run back so lookups never stop early.
+            for (int j = (i + 1) & tableMask; tableSlots[j] >= 0; j = (j + 1) & tableMask) {
+                int home = (int) mix(tableKeys[j]) & tableMask;
+                if (((j - home) & tableMask) >= ((j - i) & tableMask)) {
+                    tableKeys[i] = tableKeys[j];
+                    tableSlots[i] = tableSlots[j];
+                    i = j;
+                }
+            }
+            tableSlots[i] = -1;
+        }
+
+        int allocate() {
+            if (used < slots) return used++;
+            while (true) {
+                int s = hand;
+                hand = (hand + 1) % slots;
+                if (referenced[s] == 0) {
+                    remove(slotKeys[s]);
+                    evictions++;
+                    return s;
+                }
+                referenced[s] = 0;
+            }
+        }
+    }
+
+    private final ByteBuffer data;
+    private final int slots;
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+
+    public HeightmapCache(long capacityBytes) {
+        long n = Math.max(0L, capacityBytes) / ENTRY_BYTES;
+        this.slots = (int) Math.min(n, Integer.MAX_VALUE / ENTRY_BYTES);
+        this.data = ByteBuffer.allocateDirect(slots * ENTRY_BYTES);
+        int first = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            int count = slots / stripes.length + (i < slots % stripes.length ? 1 : 0);
+            stripes[i] = new Stripe(first, count);
+            first += count;
+        }
+    }
+
+    public static int pack(int height, int topId, boolean beach) {
+        return (height & HEIGHT_MASK) | ((topId & TOP_MASK) << TOP_SHIFT) | (beach ? BEACH_BIT : 0);
+    }
+
+    public static int height(int column) { return column & HEIGHT_MASK; }
+    public static int topId(int column)  { return (column >>> TOP_SHIFT) & TOP_MASK; }
+    public static boolean isBeach(int column) { return (column & BEACH_BIT) != 0; }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private Stripe stripeFor(long hash) {
+        return stripes[(int) (hash >>> (64 - STRIPE_BITS))];
+    }
+
+    /** Copies the cached columns of the chunk into {@code out}; returns false on a miss. */
+    public boolean get(int cx, int cz, int[] out) {
+        long key = World.getChunkKey(cx, cz);
+        long hash = mix(key);
+        Stripe stripe = stripeFor(hash);
+        synchronized (stripe) {
+            int slot = stripe.find(key, hash);
+            if (slot < 0) {
+                stripe.misses++;
+                return false;
+            }
+            stripe.hits++;
+            stripe.referenced[slot] = 1;
+            int base = (stripe.first + slot) * ENTRY_BYTES;
+            for (int i = 0; i < COLUMNS; i++) out[i] = data.getInt(base + i * 4);
+            return true;
+        }
+    }
+
+    public void put(int cx, int cz, int[] columns) {
+        long key = World.getChunkKey(cx, cz);
+        long hash = mix(key);
+        Stripe stripe = stripeFor(hash);
+        synchronized (stripe) {
+            if (stripe.slots == 0) return;
+            int slot = stripe.find(key, hash);
+            if (slot < 0) {
+                slot = stripe.allocate();
+                stripe.slotKeys[slot] = key;
+                stripe.insert(key, hash, slot);
+            }
+            stripe.referenced[slot] = 1;
+            int base = (stripe.first + slot) * ENTRY_BYTES;
+            for (int i = 0; i < COLUMNS; i++) data.putInt(base + i * 4, columns[i]);
+        }
+    }
+
+    public long getHits()      { return sum(s -> s.hits); }
+    public long getMisses()    { return sum(s -> s.misses); }
+    public long getEvictions() { return sum(s -> s.evictions); }
+    public int  getEntries()   { return (int) sum(s -> s.used); }
+
+    private long sum(ToLongFunction<Stripe> field) {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += field.applyAsLong(stripe);
+            }
+        }
+        return total;
+    }
+
+    public long getCapacityBytes() { return (long) slots * ENTRY_BYTES; }
+    public long getUsedBytes() { return (long) getEntries() * ENTRY_BYTES; }
+
+    @Override
+    public String toString() {
+        long hits = getHits(), misses = getMisses();
+        long lookups = hits + misses;
+        return String.format("HeightmapCache[%d/%d entries, %d KB, hits=%d misses=%d evictions=%d hitRate=%.1f%%]",
+                getEntries(), slots, getCapacityBytes() / 1024, hits, misses, getEvictions(),
+                lookups > 0 ? 100.0 * hits / lookups : 0.0);
+    }
+}
@@ -0,0 +1,247 @@
+package engine.world;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent open-addressing map keyed by a primitive {@code long}, meant for
+ * packed chunk coordinates. Lookups never box the key and never lock: they
+ * probe a volatile snapshot of one segment's table. Writes lock only the
+ * segment the key hashes to.
+ * <p>
+ * A slot's key never changes once it has been published. Removal leaves a
+ * tombstone that is only reclaimed when the segment is rehashed into a fresh
+ * table, so a reader racing a writer can see an old value but never a value
+ * paired with the wrong key. Iteration is weakly consistent, like
+ * {@code ConcurrentHashMap}.
+ */
+public final class Long2ObjectMap<V> {
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    public interface EntryPredicate<V> {
+        boolean test(long key, V value);
+    }
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENTS = 1 << SEGMENT_BITS;
+    private static final int MIN_CAPACITY = 16;
+    private static final Object TOMBSTONE = new Object();
+
+    private static final class Table {
+        final long[] keys;
+        final AtomicReferenceArray<Object> values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+    }
+
+    private static final class Segment {
+        volatile Table table = new Table(MIN_CAPACITY);
+        volatile int size;
+        int used; // live entries plus tombstones, guarded by this
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public Long2ObjectMap() {
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment();
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Segment segmentFor(int h) {
+        return segments[h >>> (32 - SEGMENT_BITS)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int h = hash(key);
+        Table t = segmentFor(h).table;
+        int mask = t.mask;
+        for (int i = h & mask, n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            Object v = t.values.get(i);
+            if (v == null) return null;
+            if (t.keys[i] == key) return (v == TOMBSTONE) ? null : (V) v;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    public V put(long key, V value) {
+        return insert(key, value, false);
+    }
+
+    public V putIfAbsent(long key, V value) {
+        return insert(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insert(long key, V value, boolean onlyIfAbsent) {
+        if (value == null) throw new NullPointerException();
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        synchronized (s) {
+            Table t = s.table;
+            int i = find(t, h, key);
+            if (i >= 0) {
+                Object old = t.values.get(i);
+                if (old != TOMBSTONE) {
+                    if (!onlyIfAbsent) t.values.set(i, value);
+                    return (V) old;
+                }
+                t.values.set(i, value);
+                s.size++;
+                return null;
+            }
+
+            if ((s.used + 1) * 4 > t.keys.length * 3) {
+                t = rehash(s, s.size + 1);
+            }
+            i = h & t.mask;
+            while (t.values.get(i) != null) i = (i + 1) & t.mask;
+            t.keys[i] = key;
+            t.values.set(i, value);
+            s.used++;
+            s.size++;
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        synchronized (s) {
+            Table t = s.table;
+            int i = find(t, h, key);
+            if (i < 0) return null;
+            Object old = t.values.get(i);
+            if (old == TOMBSTONE) return null;
+            t.values.set(i, TOMBSTONE);
+            s.size--;
+            return (V) old;
+        }
+    }
+
+    public boolean remove(long key, V value) {
+        int h = hash(key);
+        Segment s = segmentFor(h);
+        synchronized (s) {
+            Table t = s.table;
+            int i = find(t, h, key);
+            if (i < 0 || t.values.get(i) != value) return false;
+            t.values.set(i, TOMBSTONE);
+            s.size--;
+            return true;
+        }
+    }
+
+    /** Removes every entry the predicate accepts and returns how many were removed. */
+    @SuppressWarnings("unchecked")
+    public int removeIf(EntryPredicate<? super V> predicate) {
+        int removed = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                Table t = s.table;
+                for (int i = 0; i <= t.mask; i++) {
+                    Object v = t.values.get(i);
+                    if (v == null || v == TOMBSTONE) continue;
+                    if (predicate.test(t.keys[i], (V) v)) {
+                        t.values.set(i, TOMBSTONE);
+                        s.size--;
+                        removed++;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        for (Segment s : segments) {
+            Table t = s.table;
+            for (int i = 0; i <= t.mask; i++) {
+                Object v = t.values.get(i);
+                if (v != null && v != TOMBSTONE) action.accept(t.keys[i], (V) v);
+            }
+        }
+    }
+
+    /** Returns a snapshot of the current values. */
+    public List<V> values() {
+        List<V> out = new ArrayList<>(size());
+        forEach((k, v) -> out.add(v));
+        return out;
+    }
+
+    public void putAll(Long2ObjectMap<? extends V> other) {
+        other.forEach(this::put);
+    }
+
+    public int size() {
+        int n = 0;
+        for (Segment s : segments) n += s.size;
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        for (Segment s : segments) {
+            synchronized (s) {
+                s.table = new Table(MIN_CAPACITY);
+                s.used = 0;
+                s.size = 0;
+            }
+        }
+    }
+
+    /** Returns the slot holding the key, live or tombstoned, or -1. */
+    private static int find(Table t, int h, long key) {
+        int mask = t.mask;
+        for (int i = h & mask, n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            if (t.values.get(i) == null) return -1;
+            if (t.keys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    /** Copies the live entries into a new table sized for the given count and publishes it. */
+    private static Table rehash(Segment s, int live) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < live * 8) capacity <<= 1; // keep the fresh table under 3/8 full
+
+        Table old = s.table;
+        Table t = new Table(capacity);
+        int used = 0;
+        for (int j = 0; j <= old.mask; j++) {
+            Object v = old.values.get(j);
+            if (v == null || v == TOMBSTONE) continue;
+            long key = old.keys[j];
+            int i = hash(key) & t.mask;
+            while (t.values.get(i) != null) i = (i + 1) & t.mask;
+            t.keys[i] = key;
+            t.values.set(i, v);
+            used++;
+        }
+        s.used = used;
+        s.table = t;
+        return t;
+    }
+}
@@ -0,0 +1,12 @@
+package engine.world;
+
+/**
+ * Arithmetic used for the terrain heightmap noise. Chunks generated with
+ * different precisions don't line up exactly, so a world should keep to one.
+ */
+public enum NoisePrecision {
+    /** Bit for bit the terrain {@link PerlinNoise#fbm} gives; the default. */
+    DOUBLE,
+    /** Single precision noise. Faster, but heights can differ by a block where the noise is close to a step. */
+    FLOAT
+}
@@ -3,7 +3,13 @@ package engine.world;
 import java.util.Random;
 
 public class PerlinNoise {
-    private final int[] p = new int[Chunk.HEIGHT];
+    private final int[] p = new int[512];
+
+    // Gradient directions indexed by hash & 7, same order as the old switch.
+    private static final double[] GRAD_X = {  1,  1, -1, -1,  1, -1,  0,  0 };
+    private static final double[] GRAD_Y = {  1, -1,  1, -1,  0,  0,  1, -1 };
+    private static final float[] GRAD_XF = {  1,  1, -1, -1,  1, -1,  0,  0 };
+    private static final float[] GRAD_YF = {  1, -1,  1, -1,  0,  0,  1, -1 };
 
     public PerlinNoise(long seed) {
         int[] perm = new int[256];
@@ -21,17 +27,13 @@ public class PerlinNoise {
     private static double fade(double t) { return t * t * t * (t * (t * 6 - 15) + 10); }
     private static double lerp(double a, double b, double t) { return a + t * (b - a); }
     private static double grad(int hash, double x, double y) {
-        // 8 gradient directions
-        switch (hash & 7) {
-            case 0: return  x + y;
-            case 1: return  x - y;
-            case 2: return -x + y;
-            case 3: return -x - y;
-            case 4: return  x;
-            case 5: return -x;
-            case 6: return  y;
-            default: return -y;
-        }
+        return GRAD_X[hash & 7] * x + GRAD_Y[hash & 7] * y;
+    }
+
+    private static float fade(float t) { return t * t * t * (t * (t * 6 - 15) + 10); }
+    private static float lerp(float a, float b, float t) { return a + t * (b - a); }
+    private static float grad(int hash, float x, float y) {
+        return GRAD_XF[hash & 7] * x + GRAD_YF[hash & 7] * y;
     }
 
     /** Returns noise in [-1, 1] */
@@ -68,4 +70,128 @@ public class PerlinNoise {
         }
         return sum / ampSum; // normalize to roughly [-1,1]
     }
+
+    /**
+     * Fills {@code out[x * size + z]} with
+     * {@code fbm((wx0 + x) * scale, (wz0 + z) * scale, octaves, lacunarity, gain)}
+     * for a size x size block of columns, bit-for-bit the same as calling
+     * {@link #fbm} per column. Lattice cells and fade weights only depend on one
+     * axis, so they are computed once per row and column instead of per sample.
+     */
+    void fbmGrid(int wx0, int wz0, int size, double scale,
+                 int octaves, double lacunarity, double gain, double[] out) {
+        final int n = size * size;
+        final double[] xs = new double[size], zs = new double[size];
+        final int[] px = new int[size], px1 = new int[size];
+        final double[] xf = new double[size], u = new double[size];
+        final int[] zy = new int[size];
+        final double[] zf = new double[size], v = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            xs[i] = (wx0 + i) * scale;
+            zs[i] = (wz0 + i) * scale;
+        }
+        for (int i = 0; i < n; i++) out[i] = 0.0;
+
+        double amp = 1.0;
+        double freq = 1.0;
+        double ampSum = 0.0;
+        for (int o = 0; o < octaves; o++) {
+            for (int i = 0; i < size; i++) {
+                double x = xs[i] * freq;
+                double fx = Math.floor(x);
+                int X = (int) fx & 255;
+                px[i] = p[X];
+                px1[i] = p[X + 1];
+                xf[i] = x - fx;
+                u[i] = fade(xf[i]);
+
+                double y = zs[i] * freq;
+                double fy = Math.floor(y);
+                zy[i] = (int) fy & 255;
+                zf[i] = y - fy;
+                v[i] = fade(zf[i]);
+            }
+
+            for (int ix = 0; ix < size; ix++) {
+                final int a = px[ix], b = px1[ix];
+                final double fx = xf[ix], ux = u[ix];
+                final int row = ix * size;
+                for (int iz = 0; iz < size; iz++) {
+                    final int Y = zy[iz];
+                    final double fy = zf[iz];
+                    double x1 = lerp(grad(p[a + Y], fx, fy),     grad(p[b + Y], fx - 1, fy),     ux);
+                    double x2 = lerp(grad(p[a + Y + 1], fx, fy - 1), grad(p[b + Y + 1], fx - 1, fy - 1), ux);
+                    out[row + iz] += amp * lerp(x1, x2, v[iz]);
+                }
+            }
+
+            ampSum += amp;
+            amp *= gain;
+            freq *= lacunarity;
+        }
+
+        for (int i = 0; i < n; i++) out[i] = out[i] / ampSum;
+    }
+
+    /**
+     * Single-precision version of {@link #fbmGrid(int, int, int, double, int, double, double, double[])}.
+     * Faster, but the result is not identical to the double path, so terrain
+     * generated with it differs slightly from {@link #fbm}.
+     */
+    void fbmGrid(int wx0, int wz0, int size, float scale,
+                 int octaves, float lacunarity, float gain, float[] out) {
+        final int n = size * size;
+        final float[] xs = new float[size], zs = new float[size];
+        final int[] px = new int[size], px1 = new int[size];
+        final float[] xf = new float[size], u = new float[size];
+        final int[] zy = new int[size];
+        final float[] zf = new float[size], v = new float[size];
+
+        for (int i = 0; i < size; i++) {
+            xs[i] = (wx0 + i) * scale;
+            zs[i] = (wz0 + i) * scale;
+        }
+        for (int i = 0; i < n; i++) out[i] = 0f;
+
+        float amp = 1f;
+        float freq = 1f;
+        float ampSum = 0f;
+        for (int o = 0; o < octaves; o++) {
+            for (int i = 0; i < size; i++) {
+                float x = xs[i] * freq;
+                float fx = (float) Math.floor(x);
+                int X = (int) fx & 255;
+                px[i] = p[X];
+                px1[i] = p[X + 1];
+                xf[i] = x - fx;
+                u[i] = fade(xf[i]);
+
+                float y = zs[i] * freq;
+                float fy = (float) Math.floor(y);
+                zy[i] = (int) fy & 255;
+                zf[i] = y - fy;
+                v[i] = fade(zf[i]);
+            }
+
+            for (int ix = 0; ix < size; ix++) {
+                final int a = px[ix], b = px1[ix];
+                final float fx = xf[ix], ux = u[ix];
+                final int row = ix * size;
+                for (int iz = 0; iz < size; iz++) {
+                    final int Y = zy[iz];
+                    final float fy = zf[iz];
+                    float x1 = lerp(grad(p[a + Y], fx, fy),     grad(p[b + Y], fx - 1, fy),     ux);
+                    float x2 = lerp(grad(p[a + Y + 1], fx, fy - 1), grad(p[b + Y + 1], fx - 1, fy - 1), ux);
+                    out[row + iz] += amp * lerp(x1, x2, v[iz]);
+                }
+            }
+
+            ampSum += amp;
+            amp *= gain;
+            freq *= lacunarity;
+        }
+
+        for (int i = 0; i < n; i++) out[i] = out[i] / ampSum;
+    }
 }
@@ -0,0 +1,37 @@
+package engine.world;
+
+/**
+ * A chunk that is still being generated, together with the intermediate data
+ * later stages build on.
+ */
+public final class ProtoChunk {
+    private final WorldGenerator generator;
+    private final Chunk chunk;
+    private final int[] columns = new int[HeightmapCache.COLUMNS];
+    private volatile GenerationStage stage = GenerationStage.EMPTY;
+
+    ProtoChunk(WorldGenerator generator, int chunkX, int chunkZ) {
+        this.generator = generator;
+        this.chunk = new Chunk(chunkX, chunkZ);
+    }
+
+    public Chunk getChunk() { return chunk; }
+    public int getChunkX() { return chunk.getChunkX(); }
+    public int getChunkZ() { return chunk.getChunkZ(); }
+    public GenerationStage getStage() { return stage; }
+
+    void setStage(GenerationStage stage) { this.stage = stage; }
+
+    /** Packed column data from the heightmap stage, indexed {@code x * Chunk.SIZE + z}; see {@link HeightmapCache}. */
+    public int[] getColumns() { return columns; }
+
+    /**
+     * Returns the neighbouring chunk at the given offset, or null if it has
+     * already been completed and handed to the world. Only offsets within the
+     * running stage's neighbour radius are guaranteed to have reached the
+     * previous stage.
+     */
+    public ProtoChunk getNeighbour(int dx, int dz) {
+        return generator.peek(getChunkX() + dx, getChunkZ() + dz);
+    }
+}
@@ -0,0 +1,28 @@
+package engine.world;
+
+/**
+ * Result of a {@link VoxelRaycaster} query. Instances are meant to be reused
+ * across casts; every cast overwrites all fields.
+ */
+public final class RayHit {
+    public boolean hit;
+    /** The block that was hit. */
+    public int x, y, z;
+    /** Outward normal of the face the ray entered through. */
+    public int nx, ny, nz;
+    public int state;
+    /** Distance along the ray, in units of the direction's length. */
+    public float distance;
+
+    void miss() {
+        hit = false;
+        x = y = z = nx = ny = nz = state = 0;
+        distance = Float.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public String toString() {
+        if (!hit) return "RayHit[miss]";
+        return "RayHit[" + x + "," + y + "," + z + " n=" + nx + "," + ny + "," + nz + " d=" + distance + "]";
+    }
+}
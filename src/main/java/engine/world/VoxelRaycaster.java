@@ -0,0 +1,220 @@
+package engine.world;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import engine.world.block.BlockShapes;
+
+/**
+ * Ray casts against the loaded blocks of a world, for picking, line of sight
+ * and similar queries. Rays walk the voxel grid with a DDA, test the
+ * collision shapes from {@link BlockShapes} so slabs and stairs are hit where
+ * they actually are, and jump straight across sections with nothing to hit.
+ * <p>
+ * Chunks are looked up through a per-thread {@link WorldCursor}, so a cast
+ * never loads or generates a chunk: a ray stops when it enters one that isn't
+ * in memory. Casting doesn't allocate, and one raycaster can be shared by any
+ * number of threads.
+ * <p>
+ * By default rays pass through water like everything else without collision.
+ * A raycaster made for picking stops at water too, so it can be targeted.
+ */
+public final class VoxelRaycaster {
+    private final World world;
+    private final ThreadLocal<WorldCursor> cursors;
+    private final boolean picking;
+
+    public VoxelRaycaster(World world) {
+        this(world, false);
+    }
+
+    /** With {@code picking}, blocks are hit by their {@link BlockShapes#getPick pick shape}. */
+    public VoxelRaycaster(World world, boolean picking) {
+        this.world = world;
+        this.picking = picking;
+        this.cursors = ThreadLocal.withInitial(() -> new WorldCursor(world, false));
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Casts a ray from (ox, oy, oz) along (dx, dy, dz) and reports the first
+     * block whose shape it enters within {@code maxDistance}, measured in
+     * units of the direction's length. Returns whether something was hit.
+     */
+    public boolean cast(float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance, RayHit out) {
+        out.miss();
+        if (dx == 0f && dy == 0f && dz == 0f) return false;
+        WorldCursor cursor = cursors.get();
+
+        final int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        final int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+        final int stepZ = dz > 0 ? 1 : (dz < 0 ? -1 : 0);
+        final float invX = 1f / dx, invY = 1f / dy, invZ = 1f / dz;
+
+        int vx = (int) Math.floor(ox);
+        int vy = (int) Math.floor(oy);
+        int vz = (int) Math.floor(oz);
+        float t = 0f;
+        // Whether the section last entered has nothing to hit; uniformId() may scan
+        // the whole section, so it only runs when the ray enters a new one.
+        BlockSectionStorage entered = null;
+        boolean enteredEmpty = false;
+
+        while (t <= maxDistance) {
+            if (vy >= Chunk.HEIGHT ? stepY >= 0 : vy < 0 && stepY <= 0) return false;
+
+            if (vy >= 0 && vy < Chunk.HEIGHT) {
+                Chunk chunk = cursor.getChunk(vx >> 4, vz >> 4);
+                if (chunk == null) return false;
+                BlockSectionStorage section = chunk.section(vy >> 4);
+                if (section != entered) {
+                    int uniform = section.uniformId();
+                    entered = section;
+                    enteredEmpty = uniform >= 0 && (picking ? BlockShapes.isPickEmpty(uniform) : BlockShapes.isEmpty(uniform));
+                }
+                if (enteredEmpty) {
+                    // Nothing to hit anywhere in this section: leave it in one jump,
+                    // at the point where the ray exits its 16^3 box.
+                    int sx = vx & ~15, sy = vy & ~15, sz = vz & ~15;
+                    float tx = stepX == 0 ? Float.POSITIVE_INFINITY : ((stepX > 0 ? sx + 16 : sx) - ox) * invX;
+                    float ty = stepY == 0 ? Float.POSITIVE_INFINITY : ((stepY > 0 ? sy + 16 : sy) - oy) * invY;
+                    float tz = stepZ == 0 ? Float.POSITIVE_INFINITY : ((stepZ > 0 ? sz + 16 : sz) - oz) * invZ;
+                    float exit = Math.min(tx, Math.min(ty, tz));
+                    if (exit > maxDistance) return false;
+
+                    int px = clamp((int) Math.floor(ox + dx * exit), sx, sx + 15);
+                    int py = clamp((int) Math.floor(oy + dy * exit), sy, sy + 15);
+                    int pz = clamp((int) Math.floor(oz + dz * exit), sz, sz + 15);
+                    if (exit == tx)      px = stepX > 0 ? sx + 16 : sx - 1;
+                    else if (exit == ty) py = stepY > 0 ? sy + 16 : sy - 1;
+                    else                 pz = stepZ > 0 ? sz + 16 : sz - 1;
+                    vx = px; vy = py; vz = pz;
+                    t = exit;
+                    continue;
+                }
+
+                int state = section.getId(vx & 15, vy & 15, vz & 15);
+                if (state != 0 && hitShape(state, picking ? BlockShapes.getPick(state) : BlockShapes.get(state),
+                                           vx, vy, vz, ox, oy, oz, dx, dy, dz, maxDistance, out)) {
+                    return true;
+                }
+            }
+
+            // Standard DDA step to the next voxel, with crossing times measured from the origin.
+            float tMaxX = stepX == 0 ? Float.POSITIVE_INFINITY : ((stepX > 0 ? vx + 1 : vx) - ox) * invX;
+            float tMaxY = stepY == 0 ? Float.POSITIVE_INFINITY : ((stepY > 0 ? vy + 1 : vy) - oy) * invY;
+            float tMaxZ = stepZ == 0 ? Float.POSITIVE_INFINITY : ((stepZ > 0 ? vz + 1 : vz) - oz) * invZ;
+            if (tMaxX < tMaxY && tMaxX < tMaxZ) { vx += stepX; t = tMaxX; }
+            else if (tMaxY < tMaxZ)             { vy += stepY; t = tMaxY; }
+            else                                { vz += stepZ; t = tMaxZ; }
+        }
+        return false;
+    }
+
+    /** Whether nothing solid lies on the segment between the two points. */
+    public boolean hasLineOfSight(float fromX, float fromY, float fromZ, float toX, float toY, float toZ, RayHit scratch) {
+        return !cast(fromX, fromY, fromZ, toX - fromX, toY - fromY, toZ - fromZ, 1f, scratch);
+    }
+
+    /**
+     * Casts {@code count} rays on the calling thread. Origins and directions
+     * are packed xyz triples; {@code out} must hold at least {@code count} hits.
+     */
+    public void castAll(float[] origins, float[] directions, int count, float maxDistance, RayHit[] out) {
+        castRange(origins, directions, 0, count, maxDistance, out);
+    }
+
+    /** Like {@link #castAll(float[], float[], int, float, RayHit[])}, split into ranges run on the executor. */
+    public void castAll(float[] origins, float[] directions, int count, float maxDistance, RayHit[] out,
+                        ExecutorService executor, int parallelism) throws InterruptedException {
+        int parts = Math.max(1, Math.min(parallelism, count));
+        int per = (count + parts - 1) / parts;
+        List<Callable<Void>> tasks = new ArrayList<>(parts);
+        for (int from = 0; from < count; from += per) {
+            final int f = from, to = Math.min(count, from + per);
+            tasks.add(() -> { castRange(origins, directions, f, to, maxDistance, out); return null; });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private void castRange(float[] origins, float[] directions, int from, int to, float maxDistance, RayHit[] out) {
+        for (int i = from; i < to; i++) {
+            int k = i * 3;
+            cast(origins[k], origins[k + 1], origins[k + 2],
+                 directions[k], directions[k + 1], directions[k + 2], maxDistance, out[i]);
+        }
+    }
+
+    private static boolean hitShape(int state, float[] shape, int bx, int by, int bz,
+                                    float ox, float oy, float oz, float dx, float dy, float dz,
+                                    float maxDistance, RayHit out) {
+        boolean found = false;
+        for (int i = 0; i < shape.length; i += BlockShapes.FLOATS_PER_BOX) {
+            float minX = bx + shape[i],     minY = by + shape[i + 1], minZ = bz + shape[i + 2];
+            float maxX = bx + shape[i + 3], maxY = by + shape[i + 4], maxZ = bz + shape[i + 5];
+
+            // Slab test; tracks the axis of the latest entry plane for the face normal.
+            float tmin = 0f, tmax = maxDistance;
+            int axis = -1;
+            if (Math.abs(dx) < 1e-6f) {
+                if (ox < minX || ox > maxX) continue;
+            } else {
+                float inv = 1f / dx;
+                float t1 = (minX - ox) * inv, t2 = (maxX - ox) * inv;
+                if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
+                if (t1 > tmin) { tmin = t1; axis = 0; }
+                tmax = Math.min(tmax, t2);
+                if (tmin > tmax) continue;
+            }
+            if (Math.abs(dy) < 1e-6f) {
+                if (oy < minY || oy > maxY) continue;
+            } else {
+                float inv = 1f / dy;
+                float t1 = (minY - oy) * inv, t2 = (maxY - oy) * inv;
+                if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
+                if (t1 > tmin) { tmin = t1; axis = 1; }
+                tmax = Math.min(tmax, t2);
+                if (tmin > tmax) continue;
+            }
+            if (Math.abs(dz) < 1e-6f) {
+                if (oz < minZ || oz > maxZ) continue;
+            } else {
+                float inv = 1f / dz;
+                float t1 = (minZ - oz) * inv, t2 = (maxZ - oz) * inv;
+                if (t1 > t2) { float tmp = t1; t1 = t2; t2 = tmp; }
+                if (t1 > tmin) { tmin = t1; axis = 2; }
+                tmax = Math.min(tmax, t2);
+                if (tmin > tmax) continue;
+            }
+            // A box the origin is already inside has no entry face and doesn't count.
+            if (axis == -1 || tmin >= out.distance) continue;
+
+            out.hit = true;
+            out.x = bx; out.y = by; out.z = bz;
+            out.nx = axis == 0 ? (dx > 0f ? -1 : 1) : 0;
+            out.ny = axis == 1 ? (dy > 0f ? -1 : 1) : 0;
+            out.nz = axis == 2 ? (dz > 0f ? -1 : 1) : 0;
+            out.state = state;
+            out.distance = tmin;
+            found = true;
+        }
+        return found;
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return v < lo ? lo : (v > hi ? hi : v);
+    }
+}
@@ -1,50 +1,107 @@
 package engine.world;
 
 import java.io.*;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import engine.rendering.Camera;
-import engine.world.block.BlockType;
 import engine.world.saving.SaveManager;
 
 
 public class World {
-	private static final AbstractBlock BEDROCK_BLOCK = new AbstractBlock(BlockType.BEDROCK);
-	private static final AbstractBlock STONE_BLOCK   = new AbstractBlock(BlockType.STONE);
-	private static final AbstractBlock DIRT_BLOCK    = new AbstractBlock(BlockType.DIRT);
+	private final ChunkStreamer chunkStreamer = new ChunkStreamer(this);
+	private final ChunkLoader chunkLoader = new ChunkLoader(this, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	private final ChunkTickets tickets = new ChunkTickets(this);
 	
-	private final ExecutorService chunkPool = Executors.newFixedThreadPool(1);
-	
-	
-    private final Map<Long, Chunk> chunks = new ConcurrentHashMap<>();
+    private final Long2ObjectMap<Chunk> chunks = new Long2ObjectMap<>();
+    // Bumped whenever a chunk is published or unloaded, or a section object replaced, so WorldCursors know to re-resolve.
+    private final AtomicInteger chunkEpoch = new AtomicInteger();
+    private final BlockChangeFeed changeFeed = new BlockChangeFeed(CHANGE_FEED_CAPACITY);
     private SaveManager saveManager;
+    private final HeightmapCache heightmapCache = new HeightmapCache(HEIGHTMAP_CACHE_BYTES);
+    private final WorldGenerator generator;
 
-    private final PerlinNoise perlin;
     private final int SEA_LEVEL = 92;
+    private static final long HEIGHTMAP_CACHE_BYTES = 4L << 20;
+    private static final int CHANGE_FEED_CAPACITY = 1 << 16;
+    // How far chunks outside the load radius are generated ahead of time.
+    static final GenerationStage PREPARED_STAGE = GenerationStage.SURFACE;
 
     public World(long seed) {
-        this.perlin = new PerlinNoise(seed);
+        this.generator = new WorldGenerator(this, seed, SEA_LEVEL, heightmapCache, NoisePrecision.DOUBLE);
         saveManager = new SaveManager();
     }
+
+    /** A world that saves its chunks into {@code saveDir} instead of ./world. */
+    public World(long seed, File saveDir) {
+        this(seed, saveDir, NoisePrecision.DOUBLE);
+    }
+
+    public World(long seed, File saveDir, NoisePrecision precision) {
+        this.generator = new WorldGenerator(this, seed, SEA_LEVEL, heightmapCache, precision);
+        saveManager = new SaveManager(saveDir);
+    }
+
+    /**
+     * Adds a step to a generation stage. Steps of stages that declare a
+     * neighbour radius may read and write the neighbours within it.
+     */
+    public void addGenerationStep(GenerationStage stage, GenerationStep step) {
+        generator.addStep(stage, step);
+    }
     
     
 
     
     
-    public Map<Long, Chunk> getChunks() {
+    public Long2ObjectMap<Chunk> getChunks() {
     	return chunks;
     }
 
     public Chunk getChunk(int cx, int cz) {
         final long key = getChunkKey(cx, cz);
-        return chunks.computeIfAbsent(key, k -> {
-            Chunk loaded = saveManager.loadChunk(cx, cz);
-			return (loaded != null) ? loaded : generateChunk(cx, cz);
-        });
+        Chunk chunk = chunks.get(key);
+        if (chunk != null) return chunk;
+        return chunkLoader.load(key, cx, cz);
+    }
+
+    Chunk loadOrGenerate(int cx, int cz) {
+        Chunk loaded = saveManager.loadChunk(cx, cz);
+        if (loaded != null) {
+            loaded.setChangeFeed(changeFeed);
+            return loaded;
+        }
+
+        Chunk chunk = generator.generate(cx, cz);
+        try {
+			saveManager.saveChunk(chunk);
+			chunk.clearDirty();
+		} catch (IOException e) {
+			System.out.println("Failed to save chunk! " + e.getLocalizedMessage());
+		}
+        chunk.setChangeFeed(changeFeed);
+        return chunk;
+    }
+
+    /**
+     * Runs the full generator for a chunk without loading, saving or
+     * publishing it. Meant for tools and benchmarks; neighbours that a stage
+     * depends on are left behind as partial chunks.
+     */
+    public Chunk generateDetached(int cx, int cz) {
+        Chunk chunk = generator.generate(cx, cz);
+        generator.release(getChunkKey(cx, cz));
+        return chunk;
+    }
+
+    /** Runs the early generation stages for a chunk that isn't needed yet. */
+    void prepareChunk(int cx, int cz) {
+        generator.prepare(cx, cz, PREPARED_STAGE);
+    }
+
+    /** Whether the chunk is loaded or saved, so the generator must leave it alone. */
+    boolean isGenerated(int cx, int cz) {
+        return getChunkIfLoaded(cx, cz) != null || saveManager.hasChunk(cx, cz);
     }
 
     public Chunk getChunkIfLoaded(int cx, int cz) {
@@ -53,32 +110,74 @@ public class World {
     
     
 
-    public void ensureChunksAround(int centerCx, int centerCz, int radius) {
-        for (int dz = -radius; dz <= radius; dz++) {
-            for (int dx = -radius; dx <= radius; dx++) {
-                getChunk(centerCx + dx, centerCz + dz);
-            }
-        }
+    /**
+     * Keeps every chunk within the square radius of (cx, cz) loaded until the
+     * matching {@link #removeTicket}. Tickets are reference counted, so
+     * overlapping areas such as spawn and forced chunks can come and go freely.
+     */
+    public void addTicket(int cx, int cz, int radius) {
+        tickets.add(cx, cz, radius);
     }
 
-    public void unloadFarChunks(int playerChunkX, int playerChunkZ, int renderRadius) {
-        final int limit = renderRadius + 1;
-        Iterator<Map.Entry<Long, Chunk>> it = chunks.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, Chunk> e = it.next();
-            int cx = (int)(e.getKey() >> 32);
-            int cz = (int)(e.getKey() & 0xffffffffL);
-            if (Math.abs(cx - playerChunkX) > limit || Math.abs(cz - playerChunkZ) > limit) {
-            	if (e.getValue().isDirty()) {
-        			try {
-                    	saveManager.saveChunk(e.getValue());
-                    } catch (IOException ex) {
-                        ex.printStackTrace();
-                    }
-        		}
-                it.remove();
-            }
+    public void removeTicket(int cx, int cz, int radius) {
+        unloadChunks(tickets.remove(cx, cz, radius));
+    }
+
+    /** Moves the player ticket and unloads only the chunks it left behind. */
+    void updatePlayerTickets(int cameraCx, int cameraCz, int radius) {
+        unloadChunks(tickets.movePlayer(cameraCx, cameraCz, radius));
+        unloadChunks(tickets.sweepUntracked());
+        chunkLoader.cancelPreparationsOutside(cameraCx, cameraCz, radius + ChunkTickets.PREPARE_MARGIN);
+        generator.retainWithin(cameraCx, cameraCz, radius + ChunkTickets.PREPARE_MARGIN + 1);
+    }
+
+    void requestPreparation(int cx, int cz, int centerCx, int centerCz) {
+        int dx = cx - centerCx, dz = cz - centerCz;
+        chunkLoader.prepare(getChunkKey(cx, cz), cx, cz, dx * dx + dz * dz);
+    }
+
+    void requestChunk(int cx, int cz, int centerCx, int centerCz) {
+        int dx = cx - centerCx, dz = cz - centerCz;
+        chunkLoader.request(getChunkKey(cx, cz), cx, cz, dx * dx + dz * dz);
+    }
+
+    void onChunkLoaded(long key) {
+        generator.release(key);
+        chunkEpoch.incrementAndGet();
+        tickets.noteLoaded(key);
+    }
+
+    private void unloadChunks(List<Long> keys) {
+        for (long key : keys) {
+            chunkLoader.cancel(key);
+            Chunk c = chunks.get(key);
+            if (c == null) continue;
+            saveIfDirty(c);
+            chunks.remove(key, c);
         }
+        if (!keys.isEmpty()) chunkEpoch.incrementAndGet();
+    }
+
+    void onSectionReplaced() {
+        chunkEpoch.incrementAndGet();
+    }
+
+    /** Changes whenever a chunk is published or unloaded, or a loaded chunk's section is replaced. */
+    public int getChunkEpoch() {
+        return chunkEpoch.get();
+    }
+
+    public HeightmapCache getHeightmapCache() {
+        return heightmapCache;
+    }
+
+    public int getPendingChunkLoads() {
+        return chunkLoader.pendingCount();
+    }
+
+    /** Number of chunks held partially generated, mostly just outside the load radius. */
+    public int getPartialChunkCount() {
+        return generator.getPendingCount();
     }
 
     public AbstractBlock getBlock(int x, int y, int z) {
@@ -101,6 +200,16 @@ public class World {
         chunk.setBlock(localX, y, localZ, block);
     }
 
+    /** Starts a batch of block changes that is applied in one go by {@link WorldEdit#commit()}. */
+    public WorldEdit edit() {
+        return new WorldEdit(this);
+    }
+
+    /** Every edit to a loaded chunk, for subsystems to {@link BlockChangeFeed#subscribe subscribe} to. */
+    public BlockChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
     public Chunk getChunk(int x, int y, int z) {
         int cx = Math.floorDiv(x, Chunk.SIZE);
         int cz = Math.floorDiv(z, Chunk.SIZE);
@@ -109,129 +218,38 @@ public class World {
 
     public void save() {
     	for (Chunk c : chunks.values()) {
-    		if (c.isDirty()) {
-    			try {
-                	saveManager.saveChunk(c);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-    		}
-            
+    		saveIfDirty(c);
         }
+    	try {
+    		saveManager.flushIndex();
+    	} catch (IOException e) {
+    		e.printStackTrace();
+    	}
     }
 
 
-    private long getChunkKey(int x, int z) {
-        return (((long) x) << 32) | (z & 0xffffffffL);
-    }
-
-    private Chunk generateChunk(int cx, int cz) {
-        Chunk chunk = new Chunk(cx, cz);
-
-        // --- Noise / shape params (same as before) ---
-        final double SCALE_HILLS   = 1.0 / 60.0;
-        final double SCALE_RIDGES  = 1.0 / 76.0;
-        final int    OCTAVES       = 5;
-        final double LACUNARITY    = 2.0;
-        final double GAIN          = 0.45;
-        final int    BASE_HEIGHT   = 64;
-        final int    HEIGHT_VAR    = 64;
-        final int    SOIL_DEPTH    = 64;
-
-        // Bedrock base (y=0) for the whole chunk
-        for (int x = 0; x < Chunk.SIZE; x++) {
-            for (int z = 0; z < Chunk.SIZE; z++) {
-                chunk.setBlock(x, 0, z, BEDROCK_BLOCK);
-            }
-        }
-
-        for (int x = 0; x < Chunk.SIZE; x++) {
-            for (int z = 0; z < Chunk.SIZE; z++) {
-                final int wx = cx * Chunk.SIZE + x;
-                final int wz = cz * Chunk.SIZE + z;
-
-                double h1 = perlin.fbm(wx * SCALE_HILLS,  wz * SCALE_HILLS,  OCTAVES, LACUNARITY, GAIN);
-                double h2 = perlin.fbm(wx * SCALE_RIDGES, wz * SCALE_RIDGES, OCTAVES, LACUNARITY, GAIN);
-                double combined = 0.7 * h1 + 0.3 * h2;
-                double curved = Math.signum(combined) * Math.pow(Math.abs(combined), 1.2);
-
-                int height = BASE_HEIGHT + (int) Math.round((curved * 0.5 + 0.5) * HEIGHT_VAR);
-                if (height < 1) height = 1;
-                if (height >= Chunk.HEIGHT) height = Chunk.HEIGHT - 1;
-
-                final boolean beach = height <= SEA_LEVEL + 1 && height >= SEA_LEVEL - 2;
-
-                int deepTop = (height - SOIL_DEPTH) - 1;
-                if (deepTop >= 1) {
-                    chunk.fill(x, z, 1, deepTop, STONE_BLOCK);
-                }
-
-                int bodyStart = Math.max(1, height - SOIL_DEPTH);
-                int bodyEnd   = height - 2;
-
-                if (bodyStart <= bodyEnd) {
-                    if (beach) {
-                        chunk.fill(x, z, bodyStart, bodyEnd, STONE_BLOCK);
-
-                        int dirtA = Math.max(bodyStart, height - 3);
-                        int dirtB = Math.min(bodyEnd, (SEA_LEVEL - 3) - 1); // up to SEA_LEVEL-4
-                        if (dirtA <= dirtB) {
-                            chunk.fill(x, z, dirtA, dirtB, DIRT_BLOCK);
-                        }
-                    } else {
-                        // Normal hill: stone up to (height-3), then dirt to (height-2)
-                        int dirtStart = Math.max(bodyStart, height - 3);
-                        if (bodyStart <= dirtStart - 1) {
-                            chunk.fill(x, z, bodyStart, dirtStart - 1, STONE_BLOCK);
-                        }
-                        if (dirtStart <= bodyEnd) {
-                            chunk.fill(x, z, dirtStart, bodyEnd, DIRT_BLOCK);
-                        }
-                    }
-                }
-
-                // Top block at y = height - 1
-                int topY = height - 1;
-                int topId;
-                if (beach && topY <= SEA_LEVEL) {
-                    topId = BlockType.SAND.getId();
-                } else if (topY <= SEA_LEVEL) {
-                    topId = BlockType.DIRT.getId();
-                } else {
-                	//BlockState.asSlab(BlockState.make(BlockType.SLAB.getId()), BlockState.SLAB_KIND_BOTTOM);
-                	//BlockState.asStairs(BlockState.make(BlockType.STAIR.getId()), BlockState.FACING_NORTH, false);
-                    topId = BlockType.GRASS.getId();
-                }
-                chunk.setState(x, topY, z, topId);
-
-                // Above top: water up to sea level, then air to ceiling
-                if (topY + 1 <= SEA_LEVEL) {
-                    chunk.fill(x, z, topY + 1, SEA_LEVEL, new AbstractBlock(BlockType.WATER));
-                }
-            }
-        }
-
+    /** Appends the chunk to the save if it was edited since it was last written. */
+    private void saveIfDirty(Chunk chunk) {
+        if (!chunk.isDirty()) return;
+        // Cleared before encoding, so an edit made meanwhile marks it dirty again.
+        chunk.clearDirty();
         try {
-			saveManager.saveChunk(chunk);
-		} catch (IOException e) {
-			System.out.println("Failed to save chunk! " + e.getLocalizedMessage());
-		}
-        return chunk;
+            saveManager.saveChunk(chunk);
+        } catch (IOException e) {
+            chunk.markDirty();
+            e.printStackTrace();
+        }
     }
 
-
-
-
+    static long getChunkKey(int x, int z) {
+        return (((long) x) << 32) | (z & 0xffffffffL);
+    }
 
 	public void tick(Camera camera, float tICK_DT) {
-		chunkPool.submit(() -> {
-			int cameraChunkX = Math.floorDiv((int) camera.getPosition().x, Chunk.SIZE);
-	        int cameraChunkZ = Math.floorDiv((int) camera.getPosition().z, Chunk.SIZE);
-	        int renderRadius = camera.getRenderDistance();
-	        
-			unloadFarChunks(cameraChunkX, cameraChunkZ, renderRadius);
-	        ensureChunksAround(cameraChunkX, cameraChunkZ, renderRadius);
-		});
-		
+		int cameraChunkX = Math.floorDiv((int) camera.getPosition().x, Chunk.SIZE);
+        int cameraChunkZ = Math.floorDiv((int) camera.getPosition().z, Chunk.SIZE);
+        int renderRadius = camera.getRenderDistance();
+
+		chunkStreamer.update(cameraChunkX, cameraChunkZ, renderRadius);
 	}
 }
\ No newline at end of file
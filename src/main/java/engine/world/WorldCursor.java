@@ -0,0 +1,77 @@
+package engine.world;
+
+/**
+ * Block lookups for callers that walk neighbouring voxels, such as collision
+ * sweeps, ambient occlusion and ray marching. The cursor remembers the last
+ * chunk and section it resolved and only goes back to the world's chunk map
+ * when a query crosses into another chunk, or when the world's chunk epoch
+ * says chunks were loaded or unloaded, or a section was replaced, since.
+ * <p>
+ * A cursor is not thread-safe; allocate one per thread or per task.
+ */
+public final class WorldCursor {
+    private final World world;
+    private final boolean loadMissing;
+
+    private boolean resolved = false;
+    private int epoch;
+    private int chunkX, chunkZ;
+    private Chunk chunk;
+
+    private int sectionIndex = -1;
+    private BlockSectionStorage section;
+
+    public WorldCursor(World world) {
+        this(world, true);
+    }
+
+    /**
+     * @param loadMissing whether chunks that are not in memory are loaded (or
+     *                    generated) on demand, as {@link World#getChunk(int, int)}
+     *                    does; when false they read as air
+     */
+    public WorldCursor(World world, boolean loadMissing) {
+        this.world = world;
+        this.loadMissing = loadMissing;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    public Chunk getChunk(int cx, int cz) {
+        // Read the epoch before the lookup so a change racing it forces a re-resolve next time.
+        int e = world.getChunkEpoch();
+        if (!resolved || cx != chunkX || cz != chunkZ || e != epoch) {
+            chunk = loadMissing ? world.getChunk(cx, cz) : world.getChunkIfLoaded(cx, cz);
+            chunkX = cx;
+            chunkZ = cz;
+            epoch = e;
+            resolved = true;
+            sectionIndex = -1;
+        }
+        return chunk;
+    }
+
+    /** Returns the block state at world coordinates, or air outside the world height or a missing chunk. */
+    public int getState(int x, int y, int z) {
+        if (y < 0 || y >= Chunk.HEIGHT) return 0;
+        // Chunk.SIZE is 16, so the shifts and masks match floorDiv/floorMod for negatives too.
+        Chunk c = getChunk(x >> 4, z >> 4);
+        if (c == null) return 0;
+        int si = y >>> 4;
+        if (si != sectionIndex) {
+            section = c.section(si);
+            sectionIndex = si;
+        }
+        return section.getId(x & 15, y & 15, z & 15);
+    }
+
+    /** Forgets the cached chunk. */
+    public void reset() {
+        resolved = false;
+        chunk = null;
+        section = null;
+        sectionIndex = -1;
+    }
+}
@@ -0,0 +1,127 @@
+package engine.world;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A batch of block changes, started with {@link World#edit()} and applied
+ * all at once by {@link #commit()}. Meant for large edits such as explosions
+ * or pasted structures: changes are grouped by section, each touched section
+ * is written once, and the change feed gets one record per changed section
+ * rather than one per block, so the renderer rebuilds the mesh and light of
+ * every affected chunk exactly once.
+ * <p>
+ * Later changes to the same block replace earlier ones. An edit is not
+ * thread-safe; it can be reused after committing.
+ */
+public final class WorldEdit {
+    private static final class SectionEdit {
+        final int chunkX, chunkZ, sectionIndex;
+        // state + 1 per block, 0 where nothing was set
+        final int[] states = new int[BlockSectionStorage.COUNT];
+        // indices that were set, in first-set order
+        short[] touched = new short[64];
+        int count;
+
+        SectionEdit(int chunkX, int chunkZ, int sectionIndex) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.sectionIndex = sectionIndex;
+        }
+    }
+
+    private final World world;
+    // Per chunk, the sections touched so far, indexed by section.
+    private final Long2ObjectMap<SectionEdit[]> chunks = new Long2ObjectMap<>();
+    // The last section written to, since edits tend to come in runs.
+    private SectionEdit last;
+
+    WorldEdit(World world) {
+        this.world = world;
+    }
+
+    public WorldEdit setBlock(int x, int y, int z, AbstractBlock block) {
+        return setState(x, y, z, block.getState());
+    }
+
+    public WorldEdit setState(int x, int y, int z, int state) {
+        if (y < 0 || y >= Chunk.HEIGHT) return this;
+        int cx = x >> 4, cz = z >> 4, si = y >> 4;
+
+        SectionEdit section = last;
+        if (section == null || section.chunkX != cx || section.chunkZ != cz || section.sectionIndex != si) {
+            long key = World.getChunkKey(cx, cz);
+            SectionEdit[] sections = chunks.get(key);
+            if (sections == null) {
+                sections = new SectionEdit[Chunk.SECTION_COUNT];
+                chunks.put(key, sections);
+            }
+            section = sections[si];
+            if (section == null) {
+                section = new SectionEdit(cx, cz, si);
+                sections[si] = section;
+            }
+            last = section;
+        }
+
+        int i = ((y & 15) * Chunk.SIZE + (z & 15)) * Chunk.SIZE + (x & 15);
+        if (section.states[i] == 0) {
+            if (section.count == section.touched.length) {
+                section.touched = Arrays.copyOf(section.touched, section.count * 2);
+            }
+            section.touched[section.count++] = (short) i;
+        }
+        section.states[i] = state + 1;
+        return this;
+    }
+
+    /** Fills the box between the two corners, inclusive. */
+    public WorldEdit fill(int x0, int y0, int z0, int x1, int y1, int z1, int state) {
+        for (int y = Math.min(y0, y1); y <= Math.max(y0, y1); y++) {
+            for (int z = Math.min(z0, z1); z <= Math.max(z0, z1); z++) {
+                for (int x = Math.min(x0, x1); x <= Math.max(x0, x1); x++) {
+                    setState(x, y, z, state);
+                }
+            }
+        }
+        return this;
+    }
+
+    /** Number of distinct blocks set so far. */
+    public int size() {
+        int[] total = {0};
+        chunks.forEach((key, sections) -> {
+            for (SectionEdit section : sections) {
+                if (section != null) total[0] += section.count;
+            }
+        });
+        return total[0];
+    }
+
+    /**
+     * Applies every pending change, loading chunks as needed, and clears the
+     * edit. Returns the number of sections that actually changed.
+     */
+    public int commit() {
+        List<SectionEdit[]> pending = chunks.values();
+        chunks.clear();
+        last = null;
+
+        BlockChangeFeed feed = world.getChangeFeed();
+        int changed = 0;
+        for (SectionEdit[] sections : pending) {
+            Chunk chunk = null;
+            for (SectionEdit section : sections) {
+                if (section == null) continue;
+                if (chunk == null) chunk = world.getChunk(section.chunkX, section.chunkZ);
+                int borders = chunk.applySectionEdit(section.sectionIndex, section.states, section.touched, section.count);
+                if (borders < 0) continue;
+                // The section was swapped for a new object; cursors must not keep the old one.
+                if (section.count == BlockSectionStorage.COUNT) world.onSectionReplaced();
+                feed.publishSection(section.chunkX, section.sectionIndex, section.chunkZ, borders);
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
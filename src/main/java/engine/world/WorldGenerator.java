@@ -0,0 +1,288 @@
+package engine.world;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import engine.world.block.BlockState;
+import engine.world.block.BlockType;
+
+/**
+ * Runs terrain generation as a sequence of {@link GenerationStage}s. Each
+ * chunk is advanced one stage at a time on the calling thread, after first
+ * bringing the neighbours the stage depends on up to the previous stage, so
+ * different chunks progress in parallel on the loader pool.
+ * <p>
+ * Chunks that only served as neighbours stay behind partially generated.
+ * They are finished cheaply if they come into range later, and are dropped
+ * by {@link #retainWithin} if they don't.
+ */
+final class WorldGenerator {
+	private static final AbstractBlock BEDROCK_BLOCK = new AbstractBlock(BlockType.BEDROCK);
+	private static final AbstractBlock STONE_BLOCK   = new AbstractBlock(BlockType.STONE);
+	private static final AbstractBlock DIRT_BLOCK    = new AbstractBlock(BlockType.DIRT);
+	private static final AbstractBlock WATER_BLOCK   = new AbstractBlock(BlockType.WATER);
+
+	private static final int LAYER = Chunk.SIZE * Chunk.SIZE;
+	private static final ThreadLocal<int[]> SURFACE_SCRATCH =
+			ThreadLocal.withInitial(() -> new int[Chunk.HEIGHT * LAYER]);
+
+    private final World world;
+    private final PerlinNoise perlin;
+    private final HeightmapCache heightmapCache;
+    private final int seaLevel;
+    private final NoisePrecision precision;
+
+    private final Long2ObjectMap<ProtoChunk> protos = new Long2ObjectMap<>();
+    private final Map<GenerationStage, List<GenerationStep>> steps = new EnumMap<>(GenerationStage.class);
+
+    WorldGenerator(World world, long seed, int seaLevel, HeightmapCache heightmapCache, NoisePrecision precision) {
+        this.world = world;
+        this.precision = precision;
+        this.perlin = new PerlinNoise(seed);
+        this.seaLevel = seaLevel;
+        this.heightmapCache = heightmapCache;
+        for (GenerationStage stage : GenerationStage.values()) {
+            steps.put(stage, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    void addStep(GenerationStage stage, GenerationStep step) {
+        if (stage == GenerationStage.EMPTY) throw new IllegalArgumentException("Nothing runs in the EMPTY stage");
+        steps.get(stage).add(step);
+    }
+
+    /**
+     * Runs every remaining stage for the chunk and returns it. The proto is
+     * kept until {@link #release} so neighbours generated in the meantime
+     * don't start the chunk over before it is published.
+     */
+    Chunk generate(int cx, int cz) {
+        return advance(cx, cz, GenerationStage.last()).getChunk();
+    }
+
+    /** Forgets the proto of a chunk that has been published or thrown away. */
+    void release(long key) {
+        protos.remove(key);
+    }
+
+    /** Generates the chunk up to the given stage without completing it. */
+    void prepare(int cx, int cz, GenerationStage target) {
+        if (world.isGenerated(cx, cz)) return;
+        advance(cx, cz, target);
+    }
+
+    ProtoChunk peek(int cx, int cz) {
+        return protos.get(World.getChunkKey(cx, cz));
+    }
+
+    /** Drops partially generated chunks further than the radius from the centre. */
+    void retainWithin(int centerCx, int centerCz, int radius) {
+        protos.removeIf((key, proto) ->
+                Math.abs(proto.getChunkX() - centerCx) > radius || Math.abs(proto.getChunkZ() - centerCz) > radius);
+    }
+
+    int getPendingCount() {
+        return protos.size();
+    }
+
+    private ProtoChunk advance(int cx, int cz, GenerationStage target) {
+        long key = World.getChunkKey(cx, cz);
+        ProtoChunk proto = protos.get(key);
+        if (proto == null) {
+            ProtoChunk created = new ProtoChunk(this, cx, cz);
+            proto = protos.putIfAbsent(key, created);
+            if (proto == null) proto = created;
+        }
+        if (proto.getStage().isAtLeast(target)) return proto;
+
+        // A thread only ever waits on neighbours reaching a lower stage than
+        // the one it is producing, so these per-chunk locks can't deadlock.
+        synchronized (proto) {
+            while (!proto.getStage().isAtLeast(target)) {
+                GenerationStage next = proto.getStage().next();
+                int r = next.getNeighbourRadius();
+                for (int dz = -r; dz <= r; dz++) {
+                    for (int dx = -r; dx <= r; dx++) {
+                        if (dx == 0 && dz == 0) continue;
+                        int nx = cx + dx, nz = cz + dz;
+                        if (world.isGenerated(nx, nz)) continue;
+                        advance(nx, nz, next.previous());
+                    }
+                }
+                runStage(next, proto);
+                proto.setStage(next);
+            }
+        }
+        return proto;
+    }
+
+    private void runStage(GenerationStage stage, ProtoChunk proto) {
+        switch (stage) {
+            case HEIGHTMAP: generateHeightmap(proto); break;
+            case SURFACE:   generateSurface(proto);   break;
+            case LIGHT:     seedSkyLight(proto);      break;
+            default: break;
+        }
+        for (GenerationStep step : steps.get(stage)) {
+            step.apply(proto);
+        }
+    }
+
+    private void generateHeightmap(ProtoChunk proto) {
+        int cx = proto.getChunkX(), cz = proto.getChunkZ();
+        int[] columns = proto.getColumns();
+        if (!heightmapCache.get(cx, cz, columns)) {
+            generateColumns(cx, cz, columns);
+            heightmapCache.put(cx, cz, columns);
+        }
+    }
+
+    /** Computes the packed surface height, top block and beach flag of every column from noise. */
+    private void generateColumns(int cx, int cz, int[] out) {
+        // --- Noise / shape params (same as before) ---
+        final double SCALE_HILLS   = 1.0 / 60.0;
+        final double SCALE_RIDGES  = 1.0 / 76.0;
+        final int    OCTAVES       = 5;
+        final double LACUNARITY    = 2.0;
+        final double GAIN          = 0.45;
+        final int    BASE_HEIGHT   = 64;
+        final int    HEIGHT_VAR    = 64;
+        final int    SEA_LEVEL     = seaLevel;
+
+        final double[] hills  = new double[Chunk.SIZE * Chunk.SIZE];
+        final double[] ridges = new double[Chunk.SIZE * Chunk.SIZE];
+        if (precision == NoisePrecision.FLOAT) {
+            final float[] h = new float[hills.length], r = new float[ridges.length];
+            perlin.fbmGrid(cx * Chunk.SIZE, cz * Chunk.SIZE, Chunk.SIZE, (float) SCALE_HILLS,  OCTAVES, (float) LACUNARITY, (float) GAIN, h);
+            perlin.fbmGrid(cx * Chunk.SIZE, cz * Chunk.SIZE, Chunk.SIZE, (float) SCALE_RIDGES, OCTAVES, (float) LACUNARITY, (float) GAIN, r);
+            for (int i = 0; i < hills.length; i++) {
+                hills[i] = h[i];
+                ridges[i] = r[i];
+            }
+        } else {
+            perlin.fbmGrid(cx * Chunk.SIZE, cz * Chunk.SIZE, Chunk.SIZE, SCALE_HILLS,  OCTAVES, LACUNARITY, GAIN, hills);
+            perlin.fbmGrid(cx * Chunk.SIZE, cz * Chunk.SIZE, Chunk.SIZE, SCALE_RIDGES, OCTAVES, LACUNARITY, GAIN, ridges);
+        }
+
+        for (int i = 0; i < Chunk.SIZE * Chunk.SIZE; i++) {
+            double combined = 0.7 * hills[i] + 0.3 * ridges[i];
+            double curved = Math.signum(combined) * Math.pow(Math.abs(combined), 1.2);
+
+            int height = BASE_HEIGHT + (int) Math.round((curved * 0.5 + 0.5) * HEIGHT_VAR);
+            if (height < 1) height = 1;
+            if (height >= Chunk.HEIGHT) height = Chunk.HEIGHT - 1;
+
+            final boolean beach = height <= SEA_LEVEL + 1 && height >= SEA_LEVEL - 2;
+
+            int topY = height - 1;
+            int topId;
+            if (beach && topY <= SEA_LEVEL) {
+                topId = BlockType.SAND.getId();
+            } else if (topY <= SEA_LEVEL) {
+                topId = BlockType.DIRT.getId();
+            } else {
+            	//BlockState.asSlab(BlockState.make(BlockType.SLAB.getId()), BlockState.SLAB_KIND_BOTTOM);
+            	//BlockState.asStairs(BlockState.make(BlockType.STAIR.getId()), BlockState.FACING_NORTH, false);
+                topId = BlockType.GRASS.getId();
+            }
+            out[i] = HeightmapCache.pack(height, topId, beach);
+        }
+    }
+
+    private void generateSurface(ProtoChunk proto) {
+        final Chunk chunk = proto.getChunk();
+        final int[] columns = proto.getColumns();
+        final int SOIL_DEPTH = 64;
+        final int SEA_LEVEL = seaLevel;
+        final int bedrock = BEDROCK_BLOCK.getState(), stone = STONE_BLOCK.getState();
+        final int dirt = DIRT_BLOCK.getState(), water = WATER_BLOCK.getState();
+
+        // Lay the runs out in section order, then hand each section over whole
+        // instead of going through the palette once per block.
+        int top = SEA_LEVEL + 1;
+        for (int column : columns) top = Math.max(top, HeightmapCache.height(column));
+        final int sectionCount = Math.min(Chunk.SECTION_COUNT, (top + Chunk.SIZE - 1) / Chunk.SIZE);
+        final int[] blocks = SURFACE_SCRATCH.get();
+        Arrays.fill(blocks, 0, sectionCount * BlockSectionStorage.COUNT, 0);
+
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            for (int z = 0; z < Chunk.SIZE; z++) {
+                final int column = columns[x * Chunk.SIZE + z];
+                final int height = HeightmapCache.height(column);
+                final boolean beach = HeightmapCache.isBeach(column);
+                final int base = z * Chunk.SIZE + x;
+
+                // Bedrock base (y=0)
+                blocks[base] = bedrock;
+
+                int deepTop = (height - SOIL_DEPTH) - 1;
+                if (deepTop >= 1) {
+                    fillRun(blocks, base, 1, deepTop, stone);
+                }
+
+                int bodyStart = Math.max(1, height - SOIL_DEPTH);
+                int bodyEnd   = height - 2;
+
+                if (bodyStart <= bodyEnd) {
+                    if (beach) {
+                        fillRun(blocks, base, bodyStart, bodyEnd, stone);
+
+                        int dirtA = Math.max(bodyStart, height - 3);
+                        int dirtB = Math.min(bodyEnd, (SEA_LEVEL - 3) - 1); // up to SEA_LEVEL-4
+                        if (dirtA <= dirtB) {
+                            fillRun(blocks, base, dirtA, dirtB, dirt);
+                        }
+                    } else {
+                        // Normal hill: stone up to (height-3), then dirt to (height-2)
+                        int dirtStart = Math.max(bodyStart, height - 3);
+                        if (bodyStart <= dirtStart - 1) {
+                            fillRun(blocks, base, bodyStart, dirtStart - 1, stone);
+                        }
+                        if (dirtStart <= bodyEnd) {
+                            fillRun(blocks, base, dirtStart, bodyEnd, dirt);
+                        }
+                    }
+                }
+
+                // Top block at y = height - 1
+                int topY = height - 1;
+                blocks[topY * LAYER + base] = HeightmapCache.topId(column);
+
+                // Above top: water up to sea level, then air to ceiling
+                if (topY + 1 <= SEA_LEVEL) {
+                    fillRun(blocks, base, topY + 1, SEA_LEVEL, water);
+                }
+            }
+        }
+
+        final int[] section = new int[BlockSectionStorage.COUNT];
+        for (int s = 0; s < sectionCount; s++) {
+            System.arraycopy(blocks, s * BlockSectionStorage.COUNT, section, 0, BlockSectionStorage.COUNT);
+            chunk.setSection(s, section);
+        }
+    }
+
+    private static void fillRun(int[] blocks, int base, int y0, int y1, int state) {
+        for (int i = y0 * LAYER + base, end = y1 * LAYER + base; i <= end; i += LAYER) {
+            blocks[i] = state;
+        }
+    }
+
+    /** Full sky light down every column until the first block that isn't air or water. */
+    private void seedSkyLight(ProtoChunk proto) {
+        final Chunk chunk = proto.getChunk();
+        final int air = BlockType.AIR.getId(), water = BlockType.WATER.getId();
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            for (int z = 0; z < Chunk.SIZE; z++) {
+                for (int y = Chunk.HEIGHT - 1; y >= 0; y--) {
+                    int typeId = BlockState.typeId(chunk.getState(x, y, z));
+                    if (typeId != air && typeId != water) break;
+                    chunk.setSkyLight(x, y, z, 15);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package engine.world.block;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import engine.physics.PhysicsEngine.AABB;
+import engine.world.AbstractBlock;
+
+/**
+ * Collision shape of every packed block state, computed once from
+ * {@link AbstractBlock#getCollisionBoxes()} and stored as a flat table indexed
+ * by state. Each shape is a run of {@code [minX, minY, minZ, maxX, maxY, maxZ]}
+ * boxes in block-local space; identical shapes share one array.
+ * <p>
+ * Physics, picking and the hover outline all read shapes from here, so a new
+ * shaped block only has to override {@code getCollisionBoxes} and be returned
+ * by {@link AbstractBlock#fromState(int)}. The returned arrays are shared and
+ * must not be modified.
+ */
+public final class BlockShapes {
+    private BlockShapes() {}
+
+    public static final int FLOATS_PER_BOX = 6;
+    public static final float[] EMPTY = new float[0];
+    // Fluids have no collision but can still be picked, as a whole block.
+    private static final float[] FLUID_PICK = {0f, 0f, 0f, 1f, 1f, 1f};
+
+    // Type id plus the three property bits BlockState packs today.
+    private static final int STATE_BITS = BlockState.TYPE_BITS + 3;
+    private static final float[][] SHAPES = new float[1 << STATE_BITS][];
+
+    static {
+        List<float[]> distinct = new ArrayList<>();
+        distinct.add(EMPTY);
+        for (int state = 0; state < SHAPES.length; state++) {
+            float[] shape = compute(state);
+            float[] shared = null;
+            for (float[] d : distinct) {
+                if (Arrays.equals(d, shape)) { shared = d; break; }
+            }
+            if (shared == null) {
+                distinct.add(shape);
+                shared = shape;
+            }
+            SHAPES[state] = shared;
+        }
+    }
+
+    /** Returns the boxes of the state; never null, empty for blocks without collision. */
+    public static float[] get(int state) {
+        if (state >= 0 && state < SHAPES.length) return SHAPES[state];
+        return compute(state);
+    }
+
+    public static boolean isEmpty(int state) {
+        return get(state).length == 0;
+    }
+
+    /** Like {@link #get}, except that water counts as a full block, for picking. */
+    public static float[] getPick(int state) {
+        if (BlockState.typeId(state) == BlockType.WATER.getId()) return FLUID_PICK;
+        return get(state);
+    }
+
+    public static boolean isPickEmpty(int state) {
+        return getPick(state).length == 0;
+    }
+
+    private static float[] compute(int state) {
+        BlockType type = BlockType.fromId(BlockState.typeId(state));
+        if (type == null || type == BlockType.AIR || type == BlockType.WATER) return EMPTY;
+
+        List<AABB> boxes = AbstractBlock.fromState(state).getCollisionBoxes();
+        if (boxes.isEmpty()) return EMPTY;
+        float[] out = new float[boxes.size() * FLOATS_PER_BOX];
+        int i = 0;
+        for (AABB b : boxes) {
+            out[i++] = b.minX; out[i++] = b.minY; out[i++] = b.minZ;
+            out[i++] = b.maxX; out[i++] = b.maxY; out[i++] = b.maxZ;
+        }
+        return out;
+    }
+}
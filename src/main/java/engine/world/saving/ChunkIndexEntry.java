@@ -5,12 +5,14 @@ public class ChunkIndexEntry {
 	public final int cz;
     public long offset;
     public int length;
+    public int crc;
 
-    public ChunkIndexEntry(int cx, int cz, long offset, int length) {
+    public ChunkIndexEntry(int cx, int cz, long offset, int length, int crc) {
         this.cx = cx;
         this.cz = cz;
         this.offset = offset;
         this.length = length;
+        this.crc = crc;
     }
 
     public long key() {
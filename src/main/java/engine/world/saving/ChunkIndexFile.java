@@ -0,0 +1,90 @@
+package engine.world.saving;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.zip.CRC32C;
+
+import engine.world.Long2ObjectMap;
+
+/**
+ * Sidecar copy of the {@link SaveManager} index. It records the world file
+ * generation and length it was taken at; since the world file is append-only
+ * within a generation, everything before that length is still described by the
+ * sidecar and only records appended after it need to be scanned.
+ */
+final class ChunkIndexFile {
+    private static final int MAGIC   = 0x57494458; // "WIDX"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+    private static final int ENTRY_SIZE  = 4 + 4 + 8 + 4 + 4;
+
+    private ChunkIndexFile() {}
+
+    /**
+     * Loads the sidecar into {@code out} and returns the world file offset the
+     * caller still has to scan from, or -1 if the sidecar is missing, damaged or
+     * belongs to another generation of the world file.
+     */
+    static long read(File file, long generation, long worldLength, Long2ObjectMap<ChunkIndexEntry> out) {
+        if (!file.isFile()) return -1;
+
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_SIZE + 4 || size > Integer.MAX_VALUE) return -1;
+
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining()) {
+                if (ch.read(buf) < 0) return -1;
+            }
+            buf.flip();
+
+            CRC32C crc = new CRC32C();
+            crc.update(buf.array(), 0, (int) size - 4);
+            if ((int) crc.getValue() != buf.getInt((int) size - 4)) return -1;
+
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return -1;
+            long fileGeneration = buf.getLong();
+            long coveredLength = buf.getLong();
+            int count = buf.getInt();
+
+            if (fileGeneration != generation || coveredLength > worldLength) return -1;
+            if (size != HEADER_SIZE + (long) count * ENTRY_SIZE + 4) return -1;
+
+            for (int i = 0; i < count; i++) {
+                ChunkIndexEntry e = new ChunkIndexEntry(buf.getInt(), buf.getInt(), buf.getLong(), buf.getInt(), buf.getInt());
+                out.put(e.key(), e);
+            }
+            return coveredLength;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    static void write(File file, long generation, long worldLength, Collection<ChunkIndexEntry> entries) throws IOException {
+        int size = HEADER_SIZE + entries.size() * ENTRY_SIZE + 4;
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(MAGIC).putInt(VERSION).putLong(generation).putLong(worldLength).putInt(entries.size());
+        for (ChunkIndexEntry e : entries) {
+            buf.putInt(e.cx).putInt(e.cz).putLong(e.offset).putInt(e.length).putInt(e.crc);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buf.array(), 0, size - 4);
+        buf.putInt((int) crc.getValue());
+
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+            raf.setLength(0);
+            raf.write(buf.array());
+        }
+        Files.move(tmp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
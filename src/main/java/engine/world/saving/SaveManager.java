@@ -1,6 +1,5 @@
 package engine.world.saving;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -8,38 +7,83 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
 
 import engine.world.Chunk;
-
+import engine.world.Long2ObjectMap;
+
+/**
+ * Append-only chunk store. Every save appends a new record carrying a CRC32C
+ * of its header and blob; the previous record for the same chunk is left
+ * untouched until the new one is fully written, so a torn write can only ever
+ * lose the newest version. On open the file is scanned, records that fail
+ * their checksum are skipped (falling back to the last good version of that
+ * chunk), scanning resumes at the next record that checks out, and a torn
+ * tail with no valid record after it is truncated away when the file is first
+ * opened.
+ * <p>
+ * The header's trailing long is a generation counter, bumped whenever records
+ * are rewritten or truncated. {@link #flushIndex()} persists the index to a
+ * {@link ChunkIndexFile} sidecar tagged with that generation, so a later open
+ * only has to scan records appended since the last flush.
+ */
 public class SaveManager {
-    private final File worldDir  = new File("./world");
-    private final File worldFile = new File(worldDir, "world.dat");
+    private final File worldDir;
+    private final File worldFile;
+    private final File indexFile;
 
     private static final String WORLD_MAGIC = "WVLD";
-    private static final int    WORLD_VER   = 1;
+    private static final int    LEGACY_VER  = 1;
+    private static final int    WORLD_VER   = 2;
 
     private static final int HEADER_SIZE = 4 + 4 + 8;
+    private static final int GENERATION_OFFSET = 4 + 4;
+    private static final int LEGACY_RECORD_HEADER = 4 + 4 + 4;
+    private static final int RECORD_HEADER = 4 + 4 + 4 + 4;
+    // Size of each read-only mapping of the world file.
+    private static final int MAP_WINDOW = 1 << 24;
 
     private final Object ioLock = new Object();
 
-    private final Map<Long, ChunkIndexEntry> index = new HashMap<>();
+    private final Long2ObjectMap<ChunkIndexEntry> index = new Long2ObjectMap<>();
     private boolean indexLoaded = false;
+    private long generation = 0L;
+    // Mappings of the world file by window index; only the last one ever grows.
+    private final Long2ObjectMap<MappedByteBuffer> windows = new Long2ObjectMap<>();
+
+    public SaveManager() {
+        this(new File("./world"));
+    }
+
+    public SaveManager(File worldDir) {
+        this.worldDir = worldDir;
+        this.worldFile = new File(worldDir, "world.dat");
+        this.indexFile = new File(worldDir, "world.idx");
+    }
 
     private void ensureWorldFile() throws IOException {
         if (!worldDir.exists()) worldDir.mkdirs();
         if (!worldFile.exists()) {
             try (RandomAccessFile raf = new RandomAccessFile(worldFile, "rw")) {
-                raf.seek(0);
-                raf.writeBytes(WORLD_MAGIC);
-                raf.writeInt(WORLD_VER);
-                raf.writeLong(0L);
+                writeHeader(raf, 0L);
             }
         }
     }
 
-    private void verifyHeader(RandomAccessFile raf) throws IOException {
+    private static void writeHeader(RandomAccessFile raf, long generation) throws IOException {
+        raf.seek(0);
+        raf.writeBytes(WORLD_MAGIC);
+        raf.writeInt(WORLD_VER);
+        raf.writeLong(generation);
+    }
+
+    private int verifyHeader(RandomAccessFile raf) throws IOException {
         raf.seek(0);
         byte[] magic = new byte[4];
         raf.readFully(magic);
@@ -48,23 +92,135 @@ public class SaveManager {
             throw new IOException("Bad world magic: " + m);
         }
         int ver = raf.readInt();
-        if (ver != WORLD_VER) {
+        if (ver != WORLD_VER && ver != LEGACY_VER) {
             throw new IOException("Unsupported world version: " + ver);
         }
-        raf.readLong();
+        generation = raf.readLong();
+        return ver;
     }
 
-    private void buildIndexIfNeeded(RandomAccessFile raf) throws IOException {
+    private void buildIndexIfNeeded() throws IOException {
         if (indexLoaded) return;
+        buildIndex(false);
+    }
 
+    /**
+     * Indexes the world file. Only the first build may repair the file;
+     * a rescan once chunks are being read from the mapped file must never
+     * shrink it underneath those mappings.
+     */
+    private void buildIndex(boolean fullScan) throws IOException {
+        boolean repair = !indexLoaded;
         index.clear();
-        verifyHeader(raf);
+        int ver;
+        long scanFrom = HEADER_SIZE;
+        long fileLen;
+        try (RandomAccessFile raf = new RandomAccessFile(worldFile, "rw")) {
+            ver = verifyHeader(raf);
+            fileLen = raf.length();
+            if (ver == LEGACY_VER) {
+                scanLegacyRecords(raf);
+            } else {
+                long covered = fullScan ? -1 : ChunkIndexFile.read(indexFile, generation, fileLen, index);
+                if (covered >= HEADER_SIZE) {
+                    scanFrom = covered;
+                } else {
+                    index.clear();
+                }
+                scanRecords(raf, scanFrom, repair);
+            }
+        }
 
+        indexLoaded = true;
+        if (ver == LEGACY_VER) {
+            rewriteLiveRecords(false);
+        } else if (scanFrom != fileLen) {
+            writeIndexFile();
+        }
+    }
+
+    /** Persists the current index so the next open can skip scanning the world file. */
+    public void flushIndex() throws IOException {
+        synchronized (ioLock) {
+            if (indexLoaded) writeIndexFile();
+        }
+    }
+
+    private void writeIndexFile() throws IOException {
+        ChunkIndexFile.write(indexFile, generation, worldFile.length(), index.values());
+    }
+
+    private void scanRecords(RandomAccessFile raf, long from, boolean repair) throws IOException {
         long fileLen = raf.length();
-        long pos = HEADER_SIZE;
+        long pos = from;
+
+        while (pos + RECORD_HEADER <= fileLen) {
+            long next = readRecord(raf, pos, fileLen);
+            if (next < 0) {
+                // The length field isn't covered by anything but the record's own
+                // checksum, so a bad record can't be skipped by it. Look for the
+                // next record that checks out instead; only when there is none is
+                // this a torn tail.
+                long resync = pos + 1;
+                for (; resync + RECORD_HEADER <= fileLen; resync++) {
+                    next = readRecord(raf, resync, fileLen);
+                    if (next >= 0) break;
+                }
+                if (next < 0) break;
+                System.out.println("Skipping " + (resync - pos) + " corrupt bytes at " + pos);
+            }
+            pos = next;
+        }
+
+        // Left alone, a torn tail is resynced past on the next open instead.
+        if (repair && pos < fileLen) {
+            System.out.println("Truncating torn world tail at " + pos + " (" + (fileLen - pos) + " bytes)");
+            raf.setLength(pos);
+            generation++;
+            raf.seek(GENERATION_OFFSET);
+            raf.writeLong(generation);
+        }
+    }
+
+    /**
+     * Indexes the record starting at {@code pos} if it is intact and returns
+     * where the next one starts, or -1 if there is no valid record there.
+     */
+    private long readRecord(RandomAccessFile raf, long pos, long fileLen) throws IOException {
+        byte[] header = new byte[RECORD_HEADER + 4];
+        int headerLen = (int) Math.min(header.length, fileLen - pos);
         raf.seek(pos);
+        raf.readFully(header, 0, headerLen);
+        ByteBuffer h = ByteBuffer.wrap(header);
+        int cx = h.getInt();
+        int cz = h.getInt();
+        int len = h.getInt();
+        int crc = h.getInt();
+
+        long blobOffset = pos + RECORD_HEADER;
+        long nextPos = blobOffset + len;
+        if (len < 4 || nextPos > fileLen || headerLen < header.length) return -1;
+        // Blobs are gzip streams, or for records carried over from version 1 start
+        // with the chunk x; checking that first keeps resyncing from reading
+        // megabytes for every stray length that happens to fit.
+        boolean gzip = (header[RECORD_HEADER] & 0xFF) == 0x1f && (header[RECORD_HEADER + 1] & 0xFF) == 0x8b;
+        if (!gzip && h.getInt() != cx) return -1;
+
+        byte[] blob = new byte[len];
+        raf.seek(blobOffset);
+        raf.readFully(blob);
+        if (checksum(cx, cz, blob) != crc) return -1;
+
+        ChunkIndexEntry e = new ChunkIndexEntry(cx, cz, blobOffset, len, crc);
+        index.put(e.key(), e);
+        return nextPos;
+    }
+
+    private void scanLegacyRecords(RandomAccessFile raf) throws IOException {
+        long fileLen = raf.length();
+        long pos = HEADER_SIZE;
 
-        while (pos + 12 <= fileLen) {
+        while (pos + LEGACY_RECORD_HEADER <= fileLen) {
             raf.seek(pos);
             int cx, cz, len;
             try {
@@ -86,13 +242,97 @@ public class SaveManager {
                 break;
             }
 
-            ChunkIndexEntry e = new ChunkIndexEntry(cx, cz, blobOffset, len);
+            byte[] blob = new byte[len];
+            raf.readFully(blob);
+            ChunkIndexEntry e = new ChunkIndexEntry(cx, cz, blobOffset, len, checksum(cx, cz, blob));
             index.put(e.key(), e);
 
             pos = nextPos;
         }
+    }
 
-        indexLoaded = true;
+    /**
+     * Drops every dead record from the world file, re-encoding the live ones
+     * with the current chunk codec.
+     */
+    public void compact() throws IOException {
+        synchronized (ioLock) {
+            ensureWorldFile();
+            buildIndexIfNeeded();
+            rewriteLiveRecords(true);
+        }
+    }
+
+    public File getWorldFile() {
+        return worldFile;
+    }
+
+    /**
+     * Copies the live record of every indexed chunk into a fresh file and
+     * atomically replaces the world file with it.
+     */
+    private void rewriteLiveRecords(boolean reencode) throws IOException {
+        File tmp = new File(worldDir, worldFile.getName() + ".tmp");
+        Long2ObjectMap<ChunkIndexEntry> rewritten = new Long2ObjectMap<>();
+
+        try (RandomAccessFile src = new RandomAccessFile(worldFile, "r");
+             RandomAccessFile dst = new RandomAccessFile(tmp, "rw")) {
+            dst.setLength(0);
+            writeHeader(dst, generation + 1);
+
+            for (ChunkIndexEntry e : index.values()) {
+                byte[] blob = new byte[e.length];
+                src.seek(e.offset);
+                src.readFully(blob);
+
+                int crc = e.crc;
+                if (reencode) {
+                    blob = encodeChunk(decodeChunk(blob, e.cx, e.cz));
+                    crc = checksum(e.cx, e.cz, blob);
+                }
+
+                long blobOffset = appendRecord(dst, e.cx, e.cz, blob, crc);
+                rewritten.put(e.key(), new ChunkIndexEntry(e.cx, e.cz, blobOffset, blob.length, crc));
+            }
+            dst.getChannel().force(true);
+        }
+
+        Files.move(tmp.toPath(), worldFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        generation++;
+        windows.clear();
+        index.clear();
+        index.putAll(rewritten);
+        writeIndexFile();
+    }
+
+    private static long appendRecord(RandomAccessFile raf, int cx, int cz, byte[] blob, int crc) throws IOException {
+        long recordStart = raf.length();
+        byte[] record = new byte[RECORD_HEADER + blob.length];
+        ByteBuffer.wrap(record)
+                .putInt(cx)
+                .putInt(cz)
+                .putInt(blob.length)
+                .putInt(crc)
+                .put(blob);
+
+        raf.seek(recordStart);
+        raf.write(record);
+        return recordStart + RECORD_HEADER;
+    }
+
+    private static int checksum(int cx, int cz, byte[] blob) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(12).putInt(cx).putInt(cz).putInt(blob.length).array());
+        crc.update(blob, 0, blob.length);
+        return (int) crc.getValue();
+    }
+
+    private static int checksum(int cx, int cz, ByteBuffer blob) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(12).putInt(cx).putInt(cz).putInt(blob.remaining()).array());
+        crc.update(blob.duplicate());
+        return (int) crc.getValue();
     }
 
     private static long chunkKey(int cx, int cz) {
@@ -102,95 +342,182 @@ public class SaveManager {
     public void saveChunk(Chunk chunk) throws IOException {
         synchronized (ioLock) {
             ensureWorldFile();
+            buildIndexIfNeeded();
 
-            try (RandomAccessFile raf = new RandomAccessFile(worldFile, "rw")) {
-                buildIndexIfNeeded(raf);
-
-                int cx = chunk.getChunkX();
-                int cz = chunk.getChunkZ();
-                long key = chunkKey(cx, cz);
-
-                byte[] blob;
-                {
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    try (DataOutputStream dos = new DataOutputStream(
-                             new java.util.zip.GZIPOutputStream(baos))) {
-
-                        dos.writeInt(cx);
-                        dos.writeInt(cz);
-                        chunk.write(dos);
-                    }
-                    blob = baos.toByteArray();
-                }
-                int newLen = blob.length;
-
-                ChunkIndexEntry entry = index.get(key);
-
-                if (entry != null && newLen <= entry.length) {
-                    raf.seek(entry.offset);
-                    raf.write(blob);
-                    entry.length = newLen;
-                } else {
-                    long recordStart = raf.length();
-                    raf.seek(recordStart);
+            int cx = chunk.getChunkX();
+            int cz = chunk.getChunkZ();
+            long key = chunkKey(cx, cz);
 
-                    raf.writeInt(cx);
-                    raf.writeInt(cz);
-                    raf.writeInt(newLen);
+            byte[] blob = encodeChunk(chunk);
+            int crc = checksum(cx, cz, blob);
 
-                    long blobOffset = raf.getFilePointer();
-                    raf.write(blob);
+            // Never overwrite the live record: the index only moves to the new
+            // copy once it has been written in full.
+            try (RandomAccessFile raf = new RandomAccessFile(worldFile, "rw")) {
+                long blobOffset = appendRecord(raf, cx, cz, blob, crc);
+                index.put(key, new ChunkIndexEntry(cx, cz, blobOffset, blob.length, crc));
+            }
+        }
+    }
 
-                    ChunkIndexEntry newEntry = new ChunkIndexEntry(cx, cz, blobOffset, newLen);
-                    index.put(key, newEntry);
-                }
+    /** Returns whether a record for the chunk exists, without reading it. */
+    public boolean hasChunk(int cx, int cz) {
+        synchronized (ioLock) {
+            try {
+                ensureWorldFile();
+                buildIndexIfNeeded();
+                return index.containsKey(chunkKey(cx, cz));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
             }
         }
     }
 
+    /**
+     * Loads a chunk straight out of a read-only mapping of the world file.
+     * Only the index lookup runs under the I/O lock; checksumming and
+     * decompression read the mapped bytes in place, so loads from many
+     * threads proceed concurrently.
+     */
     public Chunk loadChunk(int cx, int cz) {
+        long key = chunkKey(cx, cz);
+        ChunkIndexEntry entry;
+        ByteBuffer blob;
         synchronized (ioLock) {
             try {
                 ensureWorldFile();
-                try (RandomAccessFile raf = new RandomAccessFile(worldFile, "r")) {
-                    buildIndexIfNeeded(raf);
-
-                    long key = chunkKey(cx, cz);
-                    ChunkIndexEntry entry = index.get(key);
-                    if (entry == null) {
-                        return null;
-                    }
-
-                    raf.seek(entry.offset);
-
-                    byte[] blob = new byte[entry.length];
-                    raf.readFully(blob);
-
-                    java.io.InputStream base = new ByteArrayInputStream(blob);
-
-                    boolean isGzip = blob.length >= 2 &&
-                                     (blob[0] & 0xFF) == 0x1f &&
-                                     (blob[1] & 0xFF) == 0x8b;
-
-                    try (DataInputStream dis = new DataInputStream(
-                             isGzip ? new java.util.zip.GZIPInputStream(base) : base)) {
-
-                        int fileCx = dis.readInt();
-                        int fileCz = dis.readInt();
-                        if (fileCx != cx || fileCz != cz) {
-                            throw new IOException("Chunk coords mismatch in blob: " +
-                                                  fileCx + "," + fileCz +
-                                                  " expected " + cx + "," + cz);
-                        }
-                        Chunk chunk = new Chunk(cx, cz);
-                        chunk.read(dis);
-                        return chunk;
-                    }
+                buildIndexIfNeeded();
+
+                entry = index.get(key);
+                if (entry == null) {
+                    return null;
                 }
+                blob = readBlob(entry);
             } catch (IOException e) {
                 e.printStackTrace();
                 return null;
             }
         }
+
+        try {
+            if (checksum(cx, cz, blob) != entry.crc) {
+                // The record went bad after it was indexed; rescan so the
+                // chunk rolls back to its last good version, if any.
+                System.out.println("Checksum mismatch for chunk " + cx + "," + cz + ", rescanning world file");
+                synchronized (ioLock) {
+                    buildIndex(true);
+                    ChunkIndexEntry fallback = index.get(key);
+                    if (fallback == null) return null;
+                    blob = readBlob(fallback);
+                }
+            }
+            return decodeChunk(blob, cx, cz);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Returns the blob of {@code entry} as a slice of the mapped world file.
+     * The file is mapped in fixed windows, so appending a record only ever
+     * remaps the last window; records straddling two windows are copied to
+     * the heap instead.
+     */
+    private ByteBuffer readBlob(ChunkIndexEntry entry) throws IOException {
+        long end = entry.offset + entry.length;
+        long window = entry.offset / MAP_WINDOW;
+        long base = window * MAP_WINDOW;
+
+        if (end - base > MAP_WINDOW) {
+            byte[] blob = new byte[entry.length];
+            try (RandomAccessFile raf = new RandomAccessFile(worldFile, "r")) {
+                raf.seek(entry.offset);
+                raf.readFully(blob);
+            }
+            return ByteBuffer.wrap(blob);
+        }
+
+        MappedByteBuffer mapped = windows.get(window);
+        if (mapped == null || mapped.capacity() < end - base) {
+            try (FileChannel ch = FileChannel.open(worldFile.toPath(), StandardOpenOption.READ)) {
+                long size = Math.min(ch.size() - base, MAP_WINDOW);
+                if (size < end - base) throw new EOFException("Chunk record past end of world file at " + entry.offset);
+                mapped = ch.map(FileChannel.MapMode.READ_ONLY, base, size);
+                windows.put(window, mapped);
+            }
+        }
+
+        ByteBuffer slice = mapped.duplicate();
+        slice.position((int) (entry.offset - base));
+        slice.limit((int) (end - base));
+        return slice.slice();
+    }
+
+    private static byte[] encodeChunk(Chunk chunk) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(
+                 new java.util.zip.GZIPOutputStream(baos))) {
+
+            dos.writeInt(chunk.getChunkX());
+            dos.writeInt(chunk.getChunkZ());
+            chunk.write(dos);
+        }
+        return baos.toByteArray();
+    }
+
+    private static Chunk decodeChunk(byte[] blob, int cx, int cz) throws IOException {
+        return decodeChunk(ByteBuffer.wrap(blob), cx, cz);
+    }
+
+    private static Chunk decodeChunk(ByteBuffer blob, int cx, int cz) throws IOException {
+        java.io.InputStream base = new ByteBufferInputStream(blob.duplicate());
+
+        boolean isGzip = blob.remaining() >= 2 &&
+                         (blob.get(blob.position()) & 0xFF) == 0x1f &&
+                         (blob.get(blob.position() + 1) & 0xFF) == 0x8b;
+
+        try (DataInputStream dis = new DataInputStream(
+                 isGzip ? new java.util.zip.GZIPInputStream(base) : base)) {
+
+            int fileCx = dis.readInt();
+            int fileCz = dis.readInt();
+            if (fileCx != cx || fileCz != cz) {
+                throw new IOException("Chunk coords mismatch in blob: " +
+                                      fileCx + "," + fileCz +
+                                      " expected " + cx + "," + cz);
+            }
+            Chunk chunk = new Chunk(cx, cz);
+            chunk.read(dis);
+            return chunk;
+        }
+    }
+
+    private static final class ByteBufferInputStream extends java.io.InputStream {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? (buf.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
     }
 }